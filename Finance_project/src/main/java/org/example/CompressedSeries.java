@@ -0,0 +1,427 @@
+package org.example;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Column-encoded price history for one stock, split into independently decodable blocks. Lossless:
+// timestamps are epoch seconds stored as delta-of-delta in the block's tick (its largest common spacing),
+// prices are differences of their IEEE-754 bit patterns (small for nearby positive prices), and the
+// decimal scale of each price is kept as an offset from the shortest decimal that reproduces its double.
+// Each column of a block is bit-packed at the block's widest value, so decoding is a shift and mask per value.
+public class CompressedSeries {
+    public static final int BLOCK_SIZE = 1024;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final String ticker;
+    private final int size;
+    private final byte[] data;
+    private final int[] blockOffsets;
+
+    // Decoded columns for one block; reused across decodeBlock calls to avoid allocation
+    public static final class Block {
+        public int size;
+        public final long[] epochSeconds = new long[BLOCK_SIZE];
+        public final double[] open = new double[BLOCK_SIZE];
+        public final double[] high = new double[BLOCK_SIZE];
+        public final double[] low = new double[BLOCK_SIZE];
+        public final double[] close = new double[BLOCK_SIZE];
+        public final double[] adjClose = new double[BLOCK_SIZE];
+        public final long[] volume = new long[BLOCK_SIZE];
+        private final long[][] scaleOffsets = new long[5][BLOCK_SIZE];   // Open, high, low, close, adjClose
+        private final long[] closeBits = new long[BLOCK_SIZE];
+        private final long[] scratch = new long[BLOCK_SIZE];
+
+        public LocalDateTime getTimestamp(int i) { return LocalDateTime.ofEpochSecond(epochSeconds[i], 0, ZoneOffset.UTC); }
+        public LocalDate getDate(int i) { return getTimestamp(i).toLocalDate(); }
+    }
+
+    private CompressedSeries(String ticker, int size, byte[] data, int[] blockOffsets) {
+        this.ticker = ticker;
+        this.size = size;
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+    }
+
+    // Throws IllegalArgumentException for a price that is not exactly a double (so cannot be stored losslessly)
+    // or a timestamp with sub-second precision
+    public static CompressedSeries encode(String ticker, List<StockData> stockData) {
+        ByteWriter out = new ByteWriter(Math.max(64, stockData.size() * 20));
+        int blocks = (stockData.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blockOffsets = new int[blocks];
+
+        long[] times = new long[BLOCK_SIZE];
+        long[][] bits = new long[5][BLOCK_SIZE];          // Open, high, low, close, adjClose
+        long[][] scaleOffsets = new long[5][BLOCK_SIZE];
+        long[] column = new long[BLOCK_SIZE];
+
+        for (int b = 0; b < blocks; b++) {
+            blockOffsets[b] = out.size();
+            int start = b * BLOCK_SIZE;
+            int count = Math.min(BLOCK_SIZE, stockData.size() - start);
+
+            for (int i = 0; i < count; i++) {
+                StockData bar = stockData.get(start + i);
+                if (bar.getTimestamp().getNano() != 0) {
+                    throw new IllegalArgumentException("Sub-second timestamp " + bar.getTimestamp() + " for " + ticker + " cannot be stored.");
+                }
+                times[i] = bar.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+                BigDecimal[] prices = {bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(), bar.getAdjClose()};
+                for (int c = 0; c < prices.length; c++) {
+                    double value = prices[c].doubleValue();
+                    BigDecimal shortest = shortestDecimal(value);
+                    if (shortest.compareTo(prices[c]) != 0) {
+                        throw new IllegalArgumentException("Price " + prices[c] + " for " + ticker + " on " + bar.getDate()
+                                + " is not exactly representable as a double and cannot be stored losslessly.");
+                    }
+                    bits[c][i] = Double.doubleToLongBits(value);
+                    scaleOffsets[c][i] = zigZag(prices[c].scale() - shortest.scale());
+                }
+            }
+            long[] close = bits[3];
+
+            // Tick: the largest spacing every time step is a multiple of (86400 for daily bars, 60 for minute bars)
+            long tick = 0;
+            for (int i = 1; i < count; i++) tick = gcd(tick, Math.abs(times[i] - times[i - 1]));
+            if (tick == 0) tick = 1;
+
+            // Header: bar count, tick and the absolute starting values
+            out.writeVarLong(count);
+            out.writeVarLong(tick);
+            out.writeZigZag(times[0]);
+            out.writeZigZag(close[0]);
+
+            // Timestamps in ticks: first delta, then delta-of-delta (0 for regular spacing)
+            for (int i = 1; i < count; i++) {
+                long delta = (times[i] - times[i - 1]) / tick;
+                column[i - 1] = zigZag(i == 1 ? delta : delta - (times[i - 1] - times[i - 2]) / tick);
+            }
+            out.writePacked(column, count - 1);
+
+            // Close: bar-over-bar bit-pattern deltas
+            for (int i = 1; i < count; i++) column[i - 1] = close[i] - close[i - 1];
+            out.writeSigned(column, count - 1);
+
+            // Open/high/low/adjusted close: offsets from the same bar's close, which stay small
+            for (int c : new int[]{0, 1, 2, 4}) {
+                for (int i = 0; i < count; i++) column[i] = bits[c][i] - close[i];
+                out.writeSigned(column, count);
+            }
+
+            for (int i = 0; i < count; i++) column[i] = stockData.get(start + i).getVolume();
+            out.writePacked(column, count);
+
+            // Decimal scale offsets; almost always zero, which packs to a single width byte
+            for (long[] offsets : scaleOffsets) out.writePacked(offsets, count);
+        }
+
+        return new CompressedSeries(ticker, stockData.size(), out.toByteArray(), blockOffsets);
+    }
+
+    public void decodeBlock(int blockIndex, Block block) {
+        ByteReader in = new ByteReader(data, blockOffsets[blockIndex]);
+        int count = (int) in.readVarLong();
+        long tick = in.readVarLong();
+        long firstTime = in.readZigZag();
+        long firstClose = in.readZigZag();
+        block.size = count;
+
+        long[] times = block.epochSeconds;
+        in.readPacked(block.scratch, count - 1);
+        times[0] = firstTime;
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            delta = i == 1 ? unZigZag(block.scratch[0]) : delta + unZigZag(block.scratch[i - 1]);
+            times[i] = times[i - 1] + delta * tick;
+        }
+
+        // Decode close bit patterns first; the other price columns are relative to them
+        long[] closeBits = block.closeBits;
+        in.readSigned(block.scratch, count - 1);
+        closeBits[0] = firstClose;
+        for (int i = 1; i < count; i++) closeBits[i] = closeBits[i - 1] + block.scratch[i - 1];
+        for (int i = 0; i < count; i++) block.close[i] = Double.longBitsToDouble(closeBits[i]);
+
+        for (double[] prices : new double[][]{block.open, block.high, block.low, block.adjClose}) {
+            in.readSigned(block.scratch, count);
+            for (int i = 0; i < count; i++) prices[i] = Double.longBitsToDouble(closeBits[i] + block.scratch[i]);
+        }
+
+        in.readPacked(block.volume, count);
+        for (long[] offsets : block.scaleOffsets) in.readPacked(offsets, count);
+    }
+
+    // Decode only the closing prices of a block, skipping the other columns; returns the bar count
+    public int decodeCloses(int blockIndex, double[] closes, long[] scratch) {
+        ByteReader in = new ByteReader(data, blockOffsets[blockIndex]);
+        int count = (int) in.readVarLong();
+        in.readVarLong();                               // Tick
+        in.readVarLong();                               // First timestamp
+        long current = in.readZigZag();
+        in.skipPacked(count - 1);                       // Timestamp deltas
+
+        in.readSigned(scratch, count - 1);
+        closes[0] = Double.longBitsToDouble(current);
+        for (int i = 1; i < count; i++) {
+            current += scratch[i - 1];
+            closes[i] = Double.longBitsToDouble(current);
+        }
+        return count;
+    }
+
+    public String getTicker() { return ticker; }
+    public int size() { return size; }
+    public int blockCount() { return blockOffsets.length; }
+
+    // Encoded footprint: packed bytes plus the block index
+    public long sizeInBytes() {
+        return data.length + 4L * blockOffsets.length;
+    }
+
+    // Read-only StockData view decoding one block at a time; not thread-safe, use one view per thread
+    public List<StockData> asList() {
+        return new BarView();
+    }
+
+    private final class BarView extends AbstractList<StockData> implements RandomAccess {
+        private final Block block = new Block();
+        private final StockData[] bars = new StockData[BLOCK_SIZE];
+        private int cachedBlock = -1;
+
+        @Override
+        public StockData get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            int blockIndex = index / BLOCK_SIZE;
+            if (blockIndex != cachedBlock) {
+                decodeBlock(blockIndex, block);
+                Arrays.fill(bars, null);
+                cachedBlock = blockIndex;
+            }
+
+            int i = index % BLOCK_SIZE;
+            if (bars[i] == null) {
+                long[][] scales = block.scaleOffsets;
+                bars[i] = new StockData(block.getTimestamp(i), toDecimal(block.open[i], scales[0][i]),
+                        toDecimal(block.high[i], scales[1][i]), toDecimal(block.low[i], scales[2][i]),
+                        toDecimal(block.close[i], scales[3][i]), toDecimal(block.adjClose[i], scales[4][i]),
+                        block.volume[i], ticker);
+            }
+            return bars[i];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static BigDecimal toDecimal(double value, long scaleOffset) {
+        BigDecimal shortest = shortestDecimal(value);
+        return shortest.setScale(shortest.scale() + (int) unZigZag(scaleOffset), RoundingMode.UNNECESSARY);
+    }
+
+    // Fewest significant digits that still parse back to `value`. Double.toString can emit one digit more
+    // than needed before Java 19, so trim while the shorter form still round-trips.
+    static BigDecimal shortestDecimal(double value) {
+        BigDecimal candidate = new BigDecimal(Double.toString(value));
+        while (candidate.precision() > 1) {
+            BigDecimal shorter = candidate.round(new MathContext(candidate.precision() - 1, RoundingMode.HALF_EVEN));
+            if (shorter.doubleValue() != value) break;
+            candidate = shorter;
+        }
+        return candidate;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(ticker);
+        out.writeInt(size);
+        out.writeInt(blockOffsets.length);
+        for (int offset : blockOffsets) out.writeInt(offset);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    public static CompressedSeries readFrom(DataInputStream in) throws IOException {
+        String ticker = in.readUTF();
+        int size = in.readInt();
+        int[] blockOffsets = new int[in.readInt()];
+        for (int b = 0; b < blockOffsets.length; b++) blockOffsets[b] = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new CompressedSeries(ticker, size, data, blockOffsets);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class ByteWriter {
+        private byte[] buffer;
+        private int size;
+
+        ByteWriter(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong(zigZag(value));
+        }
+
+        // One shift byte for the trailing zero bits every value shares (29 for float-derived doubles),
+        // then the shifted values zigzagged and packed. Overwrites `values`.
+        void writeSigned(long[] values, int count) {
+            long bitsUsed = 0;
+            for (int i = 0; i < count; i++) bitsUsed |= values[i];
+            int shift = bitsUsed == 0 ? 0 : Long.numberOfTrailingZeros(bitsUsed);
+            for (int i = 0; i < count; i++) values[i] = zigZag(values[i] >> shift);
+
+            ensureCapacity(1);
+            buffer[size++] = (byte) shift;
+            writePacked(values, count);
+        }
+
+        // One width byte, then `count` values of that many bits, little-endian
+        void writePacked(long[] values, int count) {
+            long bitsUsed = 0;
+            for (int i = 0; i < count; i++) bitsUsed |= values[i];
+            int width = 64 - Long.numberOfLeadingZeros(bitsUsed);
+
+            ensureCapacity(1 + (int) (((long) count * width + 7) >>> 3));
+            buffer[size++] = (byte) width;
+            if (width == 0) return;
+
+            long accumulator = 0;
+            int bits = 0;
+            for (int i = 0; i < count; i++) {
+                long value = values[i];
+                accumulator |= value << bits;
+                bits += width;
+                if (bits >= 64) {
+                    LONGS.set(buffer, size, accumulator);
+                    size += 8;
+                    bits -= 64;
+                    accumulator = bits > 0 ? value >>> (width - bits) : 0;
+                }
+            }
+            for (; bits > 0; bits -= 8) {
+                buffer[size++] = (byte) accumulator;
+                accumulator >>>= 8;
+            }
+        }
+
+        // Trailing padding lets readers load a full word at any packed offset
+        byte[] toByteArray() { return Arrays.copyOf(buffer, size + 9); }
+        int size() { return size; }
+    }
+
+    private static final class ByteReader {
+        private final byte[] buffer;
+        private int pos;
+
+        ByteReader(byte[] buffer, int pos) {
+            this.buffer = buffer;
+            this.pos = pos;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return result;
+        }
+
+        long readZigZag() {
+            return unZigZag(readVarLong());
+        }
+
+        void skipPacked(int count) {
+            int width = buffer[pos++];
+            if (count > 0) pos += (int) (((long) count * width + 7) >>> 3);
+        }
+
+        void readSigned(long[] values, int count) {
+            int shift = buffer[pos++];
+            readPacked(values, count);
+            for (int i = 0; i < count; i++) values[i] = unZigZag(values[i]) << shift;
+        }
+
+        void readPacked(long[] values, int count) {
+            int width = buffer[pos++];
+            if (count <= 0) return;
+            if (width == 0) {
+                Arrays.fill(values, 0, count, 0L);
+                return;
+            }
+
+            if (width <= 56) {
+                // Any value fits in one unaligned 8-byte load
+                long mask = (1L << width) - 1;
+                int bitPos = 0;
+                for (int i = 0; i < count; i++, bitPos += width) {
+                    values[i] = ((long) LONGS.get(buffer, pos + (bitPos >>> 3)) >>> (bitPos & 7)) & mask;
+                }
+            } else {
+                long mask = width == 64 ? -1L : (1L << width) - 1;
+                long bitPos = 0;
+                for (int i = 0; i < count; i++, bitPos += width) {
+                    int offset = pos + (int) (bitPos >>> 3);
+                    int shift = (int) (bitPos & 7);
+                    long value = (long) LONGS.get(buffer, offset) >>> shift;
+                    if (shift + width > 64) {
+                        value |= (long) (buffer[offset + 8] & 0xFF) << (64 - shift);
+                    }
+                    values[i] = value & mask;
+                }
+            }
+            pos += (int) (((long) count * width + 7) >>> 3);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class CovarianceEngine {
+    private static final int TICKER_BLOCK = 64;   // Tickers per tile (rows of the return matrix)
+    private static final int DAY_BLOCK = 256;     // Days per tile, so two tiles of rows stay in L2
+
+    private final List<String> tickers;
+    private final List<LocalDate> dates;
+    private final Map<String, Integer> tickerIndex = new HashMap<>();
+    private final double[][] returns;             // [ticker][day] one-day return, NaN when missing or after a gap
+    private final int n;
+
+    // Exponentially weighted state
+    private double lambda;
+    private double[] ewMean;
+    private double[] ewCov;                       // Row-major n x n
+    private double[] ewVar;                       // [i * n + j]: variance of i over the days j also has a return
+    private int nextEwmaDay;                      // First day of the date axis not yet folded into the state
+
+    public CovarianceEngine(StockDataManager dataManager) {
+        this.tickers = dataManager.getStocks();
+        Collections.sort(tickers);
+        this.dates = dataManager.getTradingDates();
+        this.n = tickers.size();
+        this.returns = new double[n][dates.size()];
+
+        Map<LocalDate, Integer> dateIndex = new HashMap<>();
+        for (int t = 0; t < dates.size(); t++) {
+            dateIndex.put(dates.get(t), t);
+        }
+
+        // Build primitive return rows aligned on the common date axis
+        for (int i = 0; i < n; i++) {
+            tickerIndex.put(tickers.get(i), i);
+            double[] row = returns[i];
+            Arrays.fill(row, Double.NaN);
+
+            // A return spanning a gap in the ticker's own history covers several days, so it stays NaN
+            List<StockData> stockData = dataManager.getHistoricalData(tickers.get(i));
+            for (int k = 1; k < stockData.size(); k++) {
+                int previousDay = dateIndex.get(stockData.get(k - 1).getDate());
+                int day = dateIndex.get(stockData.get(k).getDate());
+                double previousClose = stockData.get(k - 1).getAdjClose().doubleValue();
+                double currentClose = stockData.get(k).getAdjClose().doubleValue();
+                if (day == previousDay + 1 && previousClose > 0) {
+                    row[day] = currentClose / previousClose - 1;
+                }
+            }
+        }
+    }
+
+    public List<String> getTickers() { return Collections.unmodifiableList(tickers); }
+    public List<LocalDate> getDates() { return Collections.unmodifiableList(dates); }
+    public int size() { return n; }
+
+    public int indexOf(String ticker) {
+        Integer index = tickerIndex.get(ticker);
+        return index != null ? index : -1;
+    }
+
+    // Cross-section of returns for one day of the date axis (NaN where a ticker has no bar)
+    public double[] getReturns(int day) {
+        double[] dayReturns = new double[n];
+        for (int i = 0; i < n; i++) {
+            dayReturns[i] = returns[i][day];
+        }
+        return dayReturns;
+    }
+
+    // Full-sample covariance matrix (row-major n x n) using pairwise-complete observations
+    public double[] computeCovariance() {
+        return computeCovariance(0, dates.size());
+    }
+
+    // Covariance over days [fromDay, toDay) of the date axis. Each pair's means and covariance come from the
+    // days both tickers have a return; the diagonal is each ticker's own variance.
+    public double[] computeCovariance(int fromDay, int toDay) {
+        return computePairwise(fromDay, toDay).cov;
+    }
+
+    public double[] computeCorrelation() {
+        return computeCorrelation(0, dates.size());
+    }
+
+    // Correlation over days [fromDay, toDay), normalised by each pair's variances over the same overlap,
+    // so every entry is in [-1, 1] however ragged the histories are
+    public double[] computeCorrelation(int fromDay, int toDay) {
+        PairwiseMoments moments = computePairwise(fromDay, toDay);
+        return toCorrelation(moments.cov, moments.var, n);
+    }
+
+    // Covariances plus, for each pair, both tickers' variances over that pair's overlap
+    private static final class PairwiseMoments {
+        final double[] cov;
+        final double[] var;                       // [i * n + j]: variance of i over the days shared with j
+
+        PairwiseMoments(int n) {
+            this.cov = new double[n * n];
+            this.var = new double[n * n];
+        }
+    }
+
+    private PairwiseMoments computePairwise(int fromDay, int toDay) {
+        if (fromDay < 0 || toDay > dates.size() || fromDay > toDay) {
+            throw new IllegalArgumentException("Invalid day range [" + fromDay + ", " + toDay + ")");
+        }
+        int days = toDay - fromDay;
+
+        // Shift each row by its own mean (for numerical stability only; the pair moments below re-centre on
+        // the overlap). Missing days become 0 with mask 0.
+        double[] means = meanReturns(fromDay, toDay);
+        double[][] shifted = new double[n][days];
+        double[][] mask = new double[n][days];
+        for (int i = 0; i < n; i++) {
+            for (int t = 0; t < days; t++) {
+                double r = returns[i][fromDay + t];
+                if (!Double.isNaN(r)) {
+                    shifted[i][t] = r - means[i];
+                    mask[i][t] = 1.0;
+                }
+            }
+        }
+
+        // Enumerate upper-triangular tiles and process them in parallel; each tile owns its output cells
+        int blocks = (n + TICKER_BLOCK - 1) / TICKER_BLOCK;
+        List<int[]> tiles = new ArrayList<>();
+        for (int ib = 0; ib < blocks; ib++) {
+            for (int jb = ib; jb < blocks; jb++) {
+                tiles.add(new int[]{ib, jb});
+            }
+        }
+
+        PairwiseMoments moments = new PairwiseMoments(n);
+        tiles.parallelStream().forEach(tile -> computeTile(shifted, mask, days, moments, tile[0], tile[1]));
+        return moments;
+    }
+
+    // Mean of each ticker's valid returns over days [fromDay, toDay)
+    private double[] meanReturns(int fromDay, int toDay) {
+        double[] means = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            int count = 0;
+            for (int t = fromDay; t < toDay; t++) {
+                double r = returns[i][t];
+                if (!Double.isNaN(r)) {
+                    sum += r;
+                    count++;
+                }
+            }
+            means[i] = count > 0 ? sum / count : 0.0;
+        }
+        return means;
+    }
+
+    // Accumulate count, sum x, sum y, sum x^2, sum y^2 and sum xy over each pair's overlap, one day block at a time
+    private void computeTile(double[][] shifted, double[][] mask, int days, PairwiseMoments moments, int ib, int jb) {
+        int iStart = ib * TICKER_BLOCK, iEnd = Math.min(iStart + TICKER_BLOCK, n);
+        int jStart = jb * TICKER_BLOCK, jEnd = Math.min(jStart + TICKER_BLOCK, n);
+        int width = jEnd - jStart;
+        int cells = (iEnd - iStart) * width;
+
+        double[] counts = new double[cells];
+        double[] sumX = new double[cells];
+        double[] sumY = new double[cells];
+        double[] sumXX = new double[cells];
+        double[] sumYY = new double[cells];
+        double[] sumXY = new double[cells];
+
+        for (int tStart = 0; tStart < days; tStart += DAY_BLOCK) {
+            int tEnd = Math.min(tStart + DAY_BLOCK, days);
+            for (int i = iStart; i < iEnd; i++) {
+                double[] xi = shifted[i];
+                double[] mi = mask[i];
+                for (int j = Math.max(jStart, i); j < jEnd; j++) {
+                    double[] xj = shifted[j];
+                    double[] mj = mask[j];
+                    double count = 0, sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+                    for (int t = tStart; t < tEnd; t++) {
+                        // Missing values are 0, so multiplying by the other mask restricts each sum to the overlap
+                        double x = xi[t] * mj[t];
+                        double y = xj[t] * mi[t];
+                        count += mi[t] * mj[t];
+                        sx += x;
+                        sy += y;
+                        sxx += x * x;
+                        syy += y * y;
+                        sxy += x * y;
+                    }
+                    int cell = (i - iStart) * width + (j - jStart);
+                    counts[cell] += count;
+                    sumX[cell] += sx;
+                    sumY[cell] += sy;
+                    sumXX[cell] += sxx;
+                    sumYY[cell] += syy;
+                    sumXY[cell] += sxy;
+                }
+            }
+        }
+
+        for (int i = iStart; i < iEnd; i++) {
+            for (int j = Math.max(jStart, i); j < jEnd; j++) {
+                int cell = (i - iStart) * width + (j - jStart);
+                double count = counts[cell];
+                double cov = Double.NaN, varI = Double.NaN, varJ = Double.NaN;
+                if (count > 1) {
+                    cov = (sumXY[cell] - sumX[cell] * sumY[cell] / count) / (count - 1);
+                    varI = Math.max(sumXX[cell] - sumX[cell] * sumX[cell] / count, 0.0) / (count - 1);
+                    varJ = Math.max(sumYY[cell] - sumY[cell] * sumY[cell] / count, 0.0) / (count - 1);
+                }
+                moments.cov[i * n + j] = cov;
+                moments.cov[j * n + i] = cov;
+                moments.var[i * n + j] = varI;
+                moments.var[j * n + i] = varJ;
+            }
+        }
+    }
+
+    // Seed the exponentially weighted state from days [0, seedDays) only, so no later return leaks into it;
+    // roll it forward from seedDays with advanceEwma (or updateEwma for returns beyond the loaded dates)
+    public void initializeEwma(double lambda, int seedDays) {
+        if (lambda <= 0 || lambda >= 1) {
+            throw new IllegalArgumentException("Decay factor must be between 0 and 1.");
+        }
+        if (seedDays < 2 || seedDays > dates.size()) {
+            throw new IllegalArgumentException("Seed window must cover between 2 and " + dates.size() + " days.");
+        }
+        PairwiseMoments seed = computePairwise(0, seedDays);
+        this.lambda = lambda;
+        this.ewCov = seed.cov;
+        this.ewVar = seed.var;
+        this.ewMean = meanReturns(0, seedDays);
+        this.nextEwmaDay = seedDays;
+    }
+
+    // Fold the next day of the date axis into the exponentially weighted state; false once all days are used
+    public boolean advanceEwma() {
+        if (ewCov == null) {
+            throw new IllegalStateException("Call initializeEwma before advanceEwma.");
+        }
+        if (nextEwmaDay >= dates.size()) return false;
+        updateEwma(getReturns(nextEwmaDay++));
+        return true;
+    }
+
+    // Day index (on the date axis) that advanceEwma will apply next
+    public int getNextEwmaDay() {
+        return nextEwmaDay;
+    }
+
+    // O(n^2) rank-one update with one day's returns; pairs with a missing return keep their previous value.
+    // The pair variances are updated on exactly the same days as the covariance, so correlations stay in [-1, 1].
+    public void updateEwma(double[] dayReturns) {
+        if (ewCov == null) {
+            throw new IllegalStateException("Call initializeEwma before updateEwma.");
+        }
+        if (dayReturns.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " returns, got " + dayReturns.length);
+        }
+
+        double[] deviations = new double[n];
+        for (int i = 0; i < n; i++) {
+            deviations[i] = dayReturns[i] - ewMean[i];   // NaN propagates for missing tickers
+        }
+
+        double weight = 1 - lambda;
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double di = deviations[i];
+            if (Double.isNaN(di)) return;
+            int rowStart = i * n;
+            for (int j = 0; j < n; j++) {
+                double dj = deviations[j];
+                if (Double.isNaN(dj)) continue;
+                ewCov[rowStart + j] = decay(ewCov[rowStart + j], di * dj, weight);
+                ewVar[rowStart + j] = decay(ewVar[rowStart + j], di * di, weight);
+            }
+        });
+
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(dayReturns[i])) {
+                ewMean[i] = lambda * ewMean[i] + weight * dayReturns[i];
+            }
+        }
+    }
+
+    // A pair without a seed estimate starts from its first observation
+    private double decay(double previous, double observation, double weight) {
+        return Double.isNaN(previous) ? observation : lambda * previous + weight * observation;
+    }
+
+    public double[] getEwmaCovariance() {
+        return ewCov != null ? ewCov.clone() : null;
+    }
+
+    public double[] getEwmaCorrelation() {
+        return ewCov != null ? toCorrelation(ewCov, ewVar, n) : null;
+    }
+
+    // Correlation from covariances and the matching pair variances (rounding is clamped to [-1, 1])
+    private static double[] toCorrelation(double[] cov, double[] var, int n) {
+        double[] corr = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sdI = Math.sqrt(var[i * n + j]);
+                double sdJ = Math.sqrt(var[j * n + i]);
+                double value = sdI > 0 && sdJ > 0 ? cov[i * n + j] / (sdI * sdJ) : Double.NaN;
+                corr[i * n + j] = Double.isNaN(value) ? value : Math.max(-1.0, Math.min(1.0, value));
+            }
+        }
+        return corr;
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+public class PerformanceMetrics {
+    private final int window;
+
+    // Running mean/variance of daily returns (Welford)
+    private long count;
+    private double mean;
+    private double m2;
+
+    // Downside deviation over the full run
+    private double downsideSumSq;
+
+    // Rolling window of daily returns in a fixed ring buffer; the rolling ratios are computed from it on demand
+    // (two-pass, O(window)) because running sums lose precision when a volatile stretch leaves the window
+    private final double[] windowReturns;
+    private int windowPos;
+    private int windowSize;
+
+    // Portfolio value, peak and drawdown
+    private double firstValue = Double.NaN;
+    private double lastValue = Double.NaN;
+    private double peak;
+    private double currentDrawdown;
+    private double maxDrawdown;
+
+    // Turnover, exposure and hit rate
+    private double totalTraded;
+    private double turnoverSum;
+    private double exposureSum;
+    private long days;
+    private long hits;
+
+    public PerformanceMetrics(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Rolling window must be at least 2 days.");
+        }
+        this.window = window;
+        this.windowReturns = new double[window];
+    }
+
+    // Feed one day of the simulation: end-of-day portfolio value, gross market value held and notional traded that day
+    public void update(double portfolioValue, double grossExposure, double tradedNotional) {
+        days++;
+        totalTraded += tradedNotional;
+        if (portfolioValue > 0) {
+            turnoverSum += tradedNotional / portfolioValue;
+            exposureSum += grossExposure / portfolioValue;
+        }
+
+        if (Double.isNaN(lastValue)) {
+            firstValue = portfolioValue;
+            lastValue = portfolioValue;
+            peak = portfolioValue;
+            return;
+        }
+
+        // Daily return
+        double dailyReturn = lastValue != 0 ? (portfolioValue - lastValue) / lastValue : 0.0;
+        lastValue = portfolioValue;
+        if (dailyReturn > 0) hits++;
+
+        // Running mean and variance
+        count++;
+        double delta = dailyReturn - mean;
+        mean += delta / count;
+        m2 += delta * (dailyReturn - mean);
+        double downside = Math.min(dailyReturn, 0.0);
+        downsideSumSq += downside * downside;
+
+        // Rolling window: overwrite the oldest return once the buffer is full
+        windowReturns[windowPos] = dailyReturn;
+        windowPos = (windowPos + 1) % window;
+        windowSize = Math.min(windowSize + 1, window);
+
+        // Peak and drawdown
+        peak = Math.max(peak, portfolioValue);
+        currentDrawdown = peak > 0 ? (peak - portfolioValue) / peak : 0.0;
+        maxDrawdown = Math.max(maxDrawdown, currentDrawdown);
+    }
+
+    // True once the drawdown limit is breached, so parameter sweeps can abandon the run early
+    public boolean isHopeless(double maxDrawdownLimit) {
+        return maxDrawdown > maxDrawdownLimit;
+    }
+
+    public long getDays() { return days; }
+    public long getReturnCount() { return count; }
+    public double getFirstValue() { return firstValue; }
+    public double getLastValue() { return lastValue; }
+    public double getTotalReturn() { return firstValue > 0 ? lastValue / firstValue - 1 : 0.0; }
+    public double getMeanReturn() { return mean; }
+    public double getPeak() { return peak; }
+    public double getCurrentDrawdown() { return currentDrawdown; }
+    public double getMaxDrawdown() { return maxDrawdown; }
+    public double getTotalTraded() { return totalTraded; }
+
+    // Population variance, matching the original post-run calculation
+    public double getVariance() {
+        return count > 0 ? m2 / count : 0.0;
+    }
+
+    // Daily Sharpe ratio over the whole run (multiply by sqrt(252) to annualize)
+    public double getSharpe() {
+        double stdDev = Math.sqrt(getVariance());
+        return stdDev > 0 ? mean / stdDev : 0.0;
+    }
+
+    // Daily Sortino ratio over the whole run
+    public double getSortino() {
+        double downsideDev = count > 0 ? Math.sqrt(downsideSumSq / count) : 0.0;
+        return downsideDev > 0 ? mean / downsideDev : 0.0;
+    }
+
+    // Daily Sharpe ratio over the last `window` returns
+    public double getRollingSharpe() {
+        if (windowSize == 0) return 0.0;
+        double windowMean = getWindowMean();
+        double sumSq = 0;
+        for (int i = 0; i < windowSize; i++) {
+            double deviation = windowReturns[i] - windowMean;
+            sumSq += deviation * deviation;
+        }
+        double stdDev = Math.sqrt(sumSq / windowSize);
+        return stdDev > 0 ? windowMean / stdDev : 0.0;
+    }
+
+    // Daily Sortino ratio over the last `window` returns
+    public double getRollingSortino() {
+        if (windowSize == 0) return 0.0;
+        double windowMean = getWindowMean();
+        double windowDownsideSumSq = 0;
+        for (int i = 0; i < windowSize; i++) {
+            double downside = Math.min(windowReturns[i], 0.0);
+            windowDownsideSumSq += downside * downside;
+        }
+        double downsideDev = Math.sqrt(windowDownsideSumSq / windowSize);
+        return downsideDev > 0 ? windowMean / downsideDev : 0.0;
+    }
+
+    // Mean of the returns currently in the window (buffer order does not matter)
+    private double getWindowMean() {
+        double sum = 0;
+        for (int i = 0; i < windowSize; i++) sum += windowReturns[i];
+        return sum / windowSize;
+    }
+
+    // Average daily turnover (notional traded / portfolio value)
+    public double getAverageTurnover() {
+        return days > 0 ? turnoverSum / days : 0.0;
+    }
+
+    // Average gross exposure (market value held / portfolio value)
+    public double getAverageExposure() {
+        return days > 0 ? exposureSum / days : 0.0;
+    }
+
+    // Fraction of days with a positive return
+    public double getHitRate() {
+        return count > 0 ? (double) hits / count : 0.0;
+    }
+}
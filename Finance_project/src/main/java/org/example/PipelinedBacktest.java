@@ -0,0 +1,258 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Runs load -> indicators -> simulation as overlapping stages connected by bounded queues.
+// Each stock is simulated independently, so results are aggregated as soon as a stock completes.
+public class PipelinedBacktest {
+    private static final int QUEUE_CAPACITY = 32;   // Blocks in flight between stages (backpressure)
+
+    // Parsed price history for one stock
+    private static final class TickerBlock {
+        final String ticker;
+        final List<StockData> stockData;
+
+        TickerBlock(String ticker, List<StockData> stockData) {
+            this.ticker = ticker;
+            this.stockData = stockData;
+        }
+    }
+
+    // Price history with the per-day indicator inputs precomputed
+    private static final class IndicatorBlock {
+        final TickerBlock block;
+        final List<List<BigDecimal>> closingWindows;
+        final BigDecimal[] lsma;
+        final BigDecimal[][] gaussianFilters;
+
+        IndicatorBlock(TickerBlock block, List<List<BigDecimal>> closingWindows, BigDecimal[] lsma, BigDecimal[][] gaussianFilters) {
+            this.block = block;
+            this.closingWindows = closingWindows;
+            this.lsma = lsma;
+            this.gaussianFilters = gaussianFilters;
+        }
+    }
+
+    // Per-day simulation output for one stock, indexed from TickerSimulation.LOOKBACK
+    public static final class TickerResult {
+        public final String ticker;
+        public final BigDecimal[] positionValues;   // null where the bar was skipped
+        public final BigDecimal[] marketValues;
+        public final BigDecimal[] tradedNotional;
+
+        TickerResult(String ticker, int days) {
+            this.ticker = ticker;
+            this.positionValues = new BigDecimal[days];
+            this.marketValues = new BigDecimal[days];
+            this.tradedNotional = new BigDecimal[days];
+        }
+
+        public BigDecimal getFinalValue() {
+            for (int i = positionValues.length - 1; i >= 0; i--) {
+                if (positionValues[i] != null) return positionValues[i];
+            }
+            return null;
+        }
+    }
+
+    private static final TickerBlock END_OF_BLOCKS = new TickerBlock(null, null);
+    private static final IndicatorBlock END_OF_INDICATORS = new IndicatorBlock(null, null, null, null);
+    private static final TickerResult END_OF_RESULTS = new TickerResult(null, 0);
+
+    // Portfolio metrics of one run and the number of stocks that were simulated
+    public static final class RunResult {
+        public final PerformanceMetrics metrics;
+        public final int completedStocks;
+
+        RunResult(PerformanceMetrics metrics, int completedStocks) {
+            this.metrics = metrics;
+            this.completedStocks = completedStocks;
+        }
+    }
+
+    // Daily portfolio aggregates for one run, grown as stock results arrive
+    private static final class PortfolioTotals {
+        final List<BigDecimal> dailyTotals = new ArrayList<>();
+        final List<BigDecimal> dailyExposure = new ArrayList<>();
+        final List<BigDecimal> dailyTraded = new ArrayList<>();
+        final List<Boolean> dailyProcessed = new ArrayList<>();
+        int completedStocks;
+
+        void add(TickerResult result) {
+            completedStocks++;
+            for (int i = 0; i < result.positionValues.length; i++) {
+                while (dailyTotals.size() <= i) {
+                    dailyTotals.add(BigDecimal.ZERO);
+                    dailyExposure.add(BigDecimal.ZERO);
+                    dailyTraded.add(BigDecimal.ZERO);
+                    dailyProcessed.add(false);
+                }
+                if (result.positionValues[i] == null) continue;
+                dailyTotals.set(i, dailyTotals.get(i).add(result.positionValues[i]));
+                dailyExposure.set(i, dailyExposure.get(i).add(result.marketValues[i]));
+                dailyTraded.set(i, dailyTraded.get(i).add(result.tradedNotional[i]));
+                dailyProcessed.set(i, true);
+            }
+        }
+
+        PerformanceMetrics toMetrics(int metricsWindow) {
+            PerformanceMetrics metrics = new PerformanceMetrics(metricsWindow);
+            for (int i = 0; i < dailyTotals.size(); i++) {
+                if (!dailyProcessed.get(i)) continue;
+                metrics.update(dailyTotals.get(i).doubleValue(), dailyExposure.get(i).doubleValue(), dailyTraded.get(i).doubleValue());
+            }
+            return metrics;
+        }
+    }
+
+    private final BigDecimal allocationPerStock;
+    private final int indicatorWorkers;
+    private final int simulationWorkers;
+
+    public PipelinedBacktest(BigDecimal allocationPerStock, int indicatorWorkers, int simulationWorkers) {
+        if (indicatorWorkers < 1 || simulationWorkers < 1) {
+            throw new IllegalArgumentException("Each stage needs at least one worker.");
+        }
+        this.allocationPerStock = allocationPerStock;
+        this.indicatorWorkers = indicatorWorkers;
+        this.simulationWorkers = simulationWorkers;
+    }
+
+    // Run the pipeline over `filePath`; `onResult` is called on the calling thread as each stock completes.
+    // Each call starts from an empty portfolio, so the same instance can be run again.
+    public RunResult run(StockDataManager dataManager, String filePath, int metricsWindow, Consumer<TickerResult> onResult) {
+        BlockingQueue<TickerBlock> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<IndicatorBlock> ready = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<TickerResult> results = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger indicatorsRunning = new AtomicInteger(indicatorWorkers);
+        AtomicInteger simulationsRunning = new AtomicInteger(simulationWorkers);
+        PortfolioTotals totals = new PortfolioTotals();
+
+        ExecutorService executor = Executors.newFixedThreadPool(1 + indicatorWorkers + simulationWorkers);
+        try {
+            // Stage 1: parse ticker blocks
+            executor.submit(() -> {
+                try {
+                    dataManager.streamHistoricalDataFromCSV(filePath,
+                            (ticker, stockData) -> put(parsed, new TickerBlock(ticker, stockData)));
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    for (int i = 0; i < indicatorWorkers; i++) put(parsed, END_OF_BLOCKS);
+                }
+            });
+
+            // Stage 2: precompute indicator inputs
+            for (int w = 0; w < indicatorWorkers; w++) {
+                executor.submit(() -> {
+                    try {
+                        TickerBlock block;
+                        while ((block = take(parsed)) != END_OF_BLOCKS) {
+                            if (failure.get() == null) put(ready, computeIndicators(block));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                        drain(parsed, END_OF_BLOCKS);
+                    } finally {
+                        if (indicatorsRunning.decrementAndGet() == 0) {
+                            for (int i = 0; i < simulationWorkers; i++) put(ready, END_OF_INDICATORS);
+                        }
+                    }
+                });
+            }
+
+            // Stage 3: simulate each stock
+            for (int w = 0; w < simulationWorkers; w++) {
+                executor.submit(() -> {
+                    try {
+                        IndicatorBlock block;
+                        while ((block = take(ready)) != END_OF_INDICATORS) {
+                            if (failure.get() == null) put(results, simulateStock(block));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                        drain(ready, END_OF_INDICATORS);
+                    } finally {
+                        if (simulationsRunning.decrementAndGet() == 0) put(results, END_OF_RESULTS);
+                    }
+                });
+            }
+
+            // Aggregate results as they complete
+            TickerResult result;
+            while ((result = take(results)) != END_OF_RESULTS) {
+                totals.add(result);
+                if (onResult != null) onResult.accept(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Pipelined backtest failed", failure.get());
+        }
+
+        return new RunResult(totals.toMetrics(metricsWindow), totals.completedStocks);
+    }
+
+    private static IndicatorBlock computeIndicators(TickerBlock block) {
+        int days = Math.max(block.stockData.size() - TickerSimulation.LOOKBACK, 0);
+        List<List<BigDecimal>> closingWindows = new ArrayList<>(days);
+        BigDecimal[] lsma = new BigDecimal[days];
+        BigDecimal[][] gaussianFilters = new BigDecimal[days][];
+
+        for (int i = 0; i < days; i++) {
+            List<BigDecimal> closingPricesList = TickerSimulation.closingWindow(block.stockData, i + TickerSimulation.LOOKBACK);
+            closingWindows.add(closingPricesList);
+            lsma[i] = TickerSimulation.calculateLSMA(closingPricesList);
+            gaussianFilters[i] = TickerSimulation.calculateGaussianFilter(closingPricesList);
+        }
+        return new IndicatorBlock(block, closingWindows, lsma, gaussianFilters);
+    }
+
+    private TickerResult simulateStock(IndicatorBlock indicators) {
+        TickerBlock block = indicators.block;
+        TickerSimulation simulation = new TickerSimulation(block.ticker, allocationPerStock, false);
+        TickerResult result = new TickerResult(block.ticker, indicators.lsma.length);
+
+        for (int i = 0; i < indicators.lsma.length; i++) {
+            StockData data = block.stockData.get(i + TickerSimulation.LOOKBACK);
+            if (!simulation.step(data, indicators.closingWindows.get(i), indicators.lsma[i], indicators.gaussianFilters[i])) continue;
+            result.positionValues[i] = simulation.getPositionValue();
+            result.marketValues[i] = simulation.getMarketValue().abs();
+            result.tradedNotional[i] = simulation.getTradedNotional();
+        }
+        return result;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing pipeline work", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for pipeline work", e);
+        }
+    }
+
+    // After a failure keep consuming so upstream stages never block on a full queue
+    private static <T> void drain(BlockingQueue<T> queue, T endMarker) {
+        while (take(queue) != endMarker) {
+            // Discard
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Higher-timeframe OHLCV bars built incrementally from base bars; appending a bar only touches the current bucket
+public class ResampledSeries {
+    private final String ticker;
+    private final Timeframe timeframe;
+    private final List<StockData> bars = new ArrayList<>();
+    private LocalDate currentBucket;
+
+    public ResampledSeries(String ticker, Timeframe timeframe) {
+        this.ticker = ticker;
+        this.timeframe = timeframe;
+    }
+
+    public static ResampledSeries of(String ticker, Timeframe timeframe, List<StockData> baseBars) {
+        ResampledSeries series = new ResampledSeries(ticker, timeframe);
+        for (StockData bar : baseBars) {
+            series.append(bar);
+        }
+        return series;
+    }
+
+    // Add the next base bar: either extend the current bucket or open a new one
+    public void append(StockData bar) {
+        LocalDate bucket = timeframe.bucketStart(bar.getDate());
+        if (!bars.isEmpty() && bar.getTimestamp().isBefore(bars.get(bars.size() - 1).getTimestamp())) {
+            throw new IllegalArgumentException("Bars must be appended in time order: " + bar.getTimestamp() + " for " + ticker);
+        }
+
+        if (bucket.equals(currentBucket)) {
+            StockData last = bars.get(bars.size() - 1);
+            bars.set(bars.size() - 1, new StockData(
+                    bar.getTimestamp(),                     // Stamped with the latest base bar in the bucket
+                    last.getOpen(),
+                    last.getHigh().max(bar.getHigh()),
+                    last.getLow().min(bar.getLow()),
+                    bar.getClose(),
+                    bar.getAdjClose(),
+                    last.getVolume() + bar.getVolume(),
+                    ticker));
+        } else {
+            currentBucket = bucket;
+            bars.add(new StockData(bar.getTimestamp(), bar.getOpen(), bar.getHigh(), bar.getLow(),
+                    bar.getClose(), bar.getAdjClose(), bar.getVolume(), ticker));
+        }
+    }
+
+    public List<StockData> getBars() {
+        return Collections.unmodifiableList(bars);
+    }
+
+    // Bars whose bucket ended before the bucket containing `date`, i.e. those fully known on that date.
+    // Returns a view, so fetch it again after appending.
+    public List<StockData> completedBefore(LocalDate date) {
+        LocalDate bucket = timeframe.bucketStart(date);
+        int low = 0, high = bars.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeframe.bucketStart(bars.get(mid).getDate()).isBefore(bucket)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Collections.unmodifiableList(bars.subList(0, low));
+    }
+
+    public String getTicker() { return ticker; }
+    public Timeframe getTimeframe() { return timeframe; }
+    public int size() { return bars.size(); }
+}
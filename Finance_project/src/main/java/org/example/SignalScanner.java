@@ -0,0 +1,229 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+public class SignalScanner {
+
+    public enum Signal { ADX, RSI, ZSCORE }
+
+    // Indicator values for one ticker as of a scan date (NaN when not requested or still warming up)
+    public static class Snapshot {
+        public final String ticker;
+        public final LocalDate date;
+        public final double adx;
+        public final double rsi;
+        public final double zScore;
+
+        Snapshot(String ticker, LocalDate date, double adx, double rsi, double zScore) {
+            this.ticker = ticker;
+            this.date = date;
+            this.adx = adx;
+            this.rsi = rsi;
+            this.zScore = zScore;
+        }
+    }
+
+    // A snapshot paired with the score it was ranked by
+    public static final class Ranked {
+        public final Snapshot snapshot;
+        public final double score;
+
+        Ranked(Snapshot snapshot, double score) {
+            this.snapshot = snapshot;
+            this.score = score;
+        }
+    }
+
+    private final int period;
+    private final EnumSet<Signal> signals;
+    private final List<TickerState> states = new ArrayList<>();
+
+    public SignalScanner(StockDataManager dataManager, int period, EnumSet<Signal> signals) {
+        if (period < 2) {
+            throw new IllegalArgumentException("Indicator period must be at least 2.");
+        }
+        this.period = period;
+        this.signals = EnumSet.copyOf(signals);
+        for (String stock : dataManager.getStocks()) {
+            states.add(new TickerState(stock, dataManager.getHistoricalData(stock)));
+        }
+    }
+
+    // Rank every ticker with a bar on `date` by `score` and return the top k, best first.
+    // Each ticker's indicator state only advances over the bars since the previous scan.
+    public synchronized List<Ranked> scan(LocalDate date, ToDoubleFunction<Snapshot> score, int k) {
+        if (k <= 0) return new ArrayList<>();
+
+        PriorityQueue<Ranked> top = states.parallelStream()
+                .map(state -> state.advanceTo(date))
+                .filter(Objects::nonNull)
+                .map(snapshot -> new Ranked(snapshot, score.applyAsDouble(snapshot)))
+                .filter(ranked -> !Double.isNaN(ranked.score))
+                .collect(topK(k));
+
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingDouble((Ranked r) -> r.score).reversed());
+        return ranked;
+    }
+
+    // Collector keeping a bounded min-heap of the k highest scores per thread, merged at the end
+    private static Collector<Ranked, PriorityQueue<Ranked>, PriorityQueue<Ranked>> topK(int k) {
+        return Collector.of(
+                () -> new PriorityQueue<>(Comparator.comparingDouble((Ranked r) -> r.score)),
+                (heap, ranked) -> offer(heap, ranked, k),
+                (left, right) -> {
+                    for (Ranked ranked : right) offer(left, ranked, k);
+                    return left;
+                });
+    }
+
+    private static void offer(PriorityQueue<Ranked> heap, Ranked ranked, int k) {
+        if (heap.size() < k) {
+            heap.add(ranked);
+        } else if (ranked.score > heap.peek().score) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    // Fixed-size window sum; re-summed on each wrap so rounding error cannot accumulate
+    private static final class RollingSum {
+        private final double[] values;
+        private int pos;
+        private int size;
+        private double sum;
+
+        RollingSum(int window) {
+            this.values = new double[window];
+        }
+
+        void add(double value) {
+            if (size == values.length) {
+                sum -= values[pos];
+            } else {
+                size++;
+            }
+            values[pos] = value;
+            sum += value;
+            pos = (pos + 1) % values.length;
+            if (pos == 0) {
+                sum = 0;
+                for (double v : values) sum += v;
+            }
+        }
+
+        boolean isFull() { return size == values.length; }
+        double sum() { return sum; }
+
+        void clear() {
+            Arrays.fill(values, 0.0);
+            pos = 0;
+            size = 0;
+            sum = 0;
+        }
+    }
+
+    // Streaming per-ticker indicator state, using the Indicators formulas over the trailing `period` bars
+    private final class TickerState {
+        private final String ticker;
+        private final List<StockData> stockData;
+        private int cursor;                       // Next bar to consume
+        private double lastHigh, lastLow, lastClose;
+
+        // RSI and ADX use the period - 1 bar-to-bar changes inside the window
+        private final RollingSum gains = new RollingSum(period - 1);
+        private final RollingSum losses = new RollingSum(period - 1);
+        private final RollingSum plusDM = new RollingSum(period - 1);
+        private final RollingSum minusDM = new RollingSum(period - 1);
+        private final RollingSum trueRange = new RollingSum(period - 1);
+
+        // Z-score uses the last `period` daily returns
+        private final RollingSum returns = new RollingSum(period);
+        private final RollingSum returnsSq = new RollingSum(period);
+
+        TickerState(String ticker, List<StockData> stockData) {
+            this.ticker = ticker;
+            this.stockData = stockData;
+        }
+
+        Snapshot advanceTo(LocalDate date) {
+            // Scanning backwards in time restarts the stream
+            if (cursor > 0 && stockData.get(cursor - 1).getDate().isAfter(date)) {
+                reset();
+            }
+            while (cursor < stockData.size() && !stockData.get(cursor).getDate().isAfter(date)) {
+                push(stockData.get(cursor));
+                cursor++;
+            }
+            if (cursor == 0 || !stockData.get(cursor - 1).getDate().equals(date)) {
+                return null; // No bar on this date
+            }
+            return new Snapshot(ticker, date,
+                    signals.contains(Signal.ADX) ? adx() : Double.NaN,
+                    signals.contains(Signal.RSI) ? rsi() : Double.NaN,
+                    signals.contains(Signal.ZSCORE) ? zScore() : Double.NaN);
+        }
+
+        private void push(StockData bar) {
+            double high = bar.getHigh().doubleValue();
+            double low = bar.getLow().doubleValue();
+            double close = bar.getClose().doubleValue();
+
+            if (cursor > 0) {
+                if (signals.contains(Signal.RSI)) {
+                    double change = close - lastClose;
+                    gains.add(Math.max(change, 0.0));
+                    losses.add(Math.max(-change, 0.0));
+                }
+                if (signals.contains(Signal.ADX)) {
+                    plusDM.add(Math.max(high - lastHigh, 0.0));
+                    minusDM.add(Math.max(low - lastLow, 0.0));
+                    trueRange.add(high - low);
+                }
+                if (signals.contains(Signal.ZSCORE)) {
+                    double ret = lastClose != 0 ? (close - lastClose) / lastClose : 0.0;
+                    returns.add(ret);
+                    returnsSq.add(ret * ret);
+                }
+            }
+            lastHigh = high;
+            lastLow = low;
+            lastClose = close;
+        }
+
+        private double rsi() {
+            if (!gains.isFull()) return Double.NaN;
+            if (losses.sum() == 0) return 100.0;
+            if (gains.sum() == 0) return 0.0;
+            double rs = gains.sum() / losses.sum();
+            return 100.0 - 100.0 / (rs + 1);
+        }
+
+        private double adx() {
+            if (!trueRange.isFull()) return Double.NaN;
+            if (trueRange.sum() == 0) return 0.0;
+            return Math.abs((plusDM.sum() - minusDM.sum()) / trueRange.sum()) * 100;
+        }
+
+        private double zScore() {
+            if (!returns.isFull()) return Double.NaN;
+            double mean = returns.sum() / period;
+            double stdDev = Math.sqrt(Math.max(returnsSq.sum() / period - mean * mean, 0.0));
+            return stdDev > 0 ? mean / stdDev : Double.NaN;
+        }
+
+        private void reset() {
+            cursor = 0;
+            gains.clear();
+            losses.clear();
+            plusDM.clear();
+            minusDM.clear();
+            trueRange.clear();
+            returns.clear();
+            returnsSq.clear();
+        }
+    }
+}
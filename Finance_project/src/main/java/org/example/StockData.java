@@ -2,10 +2,12 @@ package org.example;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class StockData {
+    private final LocalDateTime timestamp;      // Bar time; midnight for daily bars
     private final LocalDate date;
     private final BigDecimal open;
     private final BigDecimal high;
@@ -16,7 +18,12 @@ public class StockData {
     private final String ticker;
 
     public StockData(LocalDate date, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, BigDecimal adjClose, long volume, String ticker) {
-        this.date = date;
+        this(date.atStartOfDay(), open, high, low, close, adjClose, volume, ticker);
+    }
+
+    public StockData(LocalDateTime timestamp, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, BigDecimal adjClose, long volume, String ticker) {
+        this.timestamp = timestamp;
+        this.date = timestamp.toLocalDate();
         this.open = open;
         this.high = high;
         this.low = low;
@@ -27,6 +34,7 @@ public class StockData {
     }
 
     // Getters
+    public LocalDateTime getTimestamp() { return timestamp; }
     public LocalDate getDate() { return date; }
     public BigDecimal getOpen() { return open; }
     public BigDecimal getHigh() { return high; }
@@ -2,31 +2,38 @@ package org.example;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 public class StockDataManager {
     private static final LocalDate START_DATE = LocalDate.of(2020, 1, 1);
     private static final LocalDate END_DATE = LocalDate.of(2024, 11, 30);
+    public static final String COMPRESSED_EXTENSION = ".bars";
+    private static final int COMPRESSED_MAGIC = 0x4C534332;     // File signature (and format version) for the compressed store
 
     private final Map<String, List<StockData>> historicalData = new HashMap<>();
+    private final Map<Timeframe, Map<String, ResampledSeries>> resampledData = new EnumMap<>(Timeframe.class);
+    private final Map<String, CompressedSeries> compressedData = new HashMap<>();  // Histories held compressed (read-only)
+
+    // Load either a CSV or a compressed store written by saveCompressed
+    public void loadHistoricalData(String filePath) {
+        if (filePath.endsWith(COMPRESSED_EXTENSION)) {
+            loadCompressed(filePath);
+        } else {
+            loadHistoricalDataFromCSV(filePath);
+        }
+    }
 
     public void loadHistoricalDataFromCSV(String filePath) {
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            // Read and skip header
-            String headerLine = br.readLine();
-
-            // Validate header
-            String[] headers = headerLine.split(",");
-            if (headers.length < 8 || !headers[7].trim().equalsIgnoreCase("Ticker")) {
-                throw new IllegalArgumentException("Invalid CSV format. Expected 8 columns with Ticker as last column.");
-            }
+            validateHeader(br.readLine());
 
             // Prepare a map to collect data for each stock
             Map<String, List<StockData>> stockDataMap = new HashMap<>();
@@ -39,13 +46,10 @@ public class StockDataManager {
                 if (columns.length < 8) continue;
 
                 try {
-                    // Parse CSV columns
-                    LocalDate date = LocalDate.parse(columns[0]);
-                    String ticker = columns[7].trim(); // Last column is Ticker
-                    StockData stockData = getData(columns, date, ticker);
+                    StockData stockData = parseRow(columns);
 
                     // Add to stock-specific list
-                    stockDataMap.computeIfAbsent(ticker, k -> new ArrayList<>()).add(stockData);
+                    stockDataMap.computeIfAbsent(stockData.getTicker(), k -> new ArrayList<>()).add(stockData);
 
                 } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
                     System.err.println("Error parsing line: " + line);
@@ -56,25 +60,143 @@ public class StockDataManager {
             for (String stock : stockDataMap.keySet()) {
                 List<StockData> stockData = stockDataMap.get(stock);
                 if (stockData != null) {
-                    stockData.sort(Comparator.comparing(StockData::getDate));
+                    storeHistoricalData(stock, prepare(stockData));
+                }
+            }
+
+            System.out.println("Loaded historical data for " + historicalData.size() + " stocks");
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Number of tickers the loaders would keep: those with at least one row that parses. Rows are only
+    // parsed until each ticker's first good one, so this stays a quick pre-pass.
+    public int countTickersInCSV(String filePath) {
+        Set<String> tickers = new HashSet<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            validateHeader(br.readLine());
 
-                    stockData = stockData.stream()
-                            .filter(sd -> !sd.getDate().isBefore(START_DATE) && !sd.getDate().isAfter(END_DATE))
-                            .collect(Collectors.toList());
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] columns = line.split(",");
+                if (columns.length < 8 || tickers.contains(columns[7].trim())) continue;
 
-                    historicalData.put(stock, stockData);
+                try {
+                    tickers.add(parseRow(columns).getTicker());
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    // Skipped by the loaders too; they report it
                 }
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return tickers.size();
+    }
 
-            System.out.println("Loaded historical data for " + historicalData.size() + " stocks");
+    // Stream the CSV one ticker at a time, handing each sorted and filtered block to `blockConsumer`
+    // as soon as the ticker changes. Requires rows grouped by ticker, as written by script.py.
+    // Blocks are not retained, so memory stays bounded by the blocks the consumer holds on to.
+    public void streamHistoricalDataFromCSV(String filePath, BiConsumer<String, List<StockData>> blockConsumer) {
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            validateHeader(br.readLine());
+
+            Set<String> seenTickers = new HashSet<>();
+            String currentTicker = null;
+            List<StockData> block = new ArrayList<>();
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] columns = line.split(",");
+
+                // Ensure we have enough columns
+                if (columns.length < 8) continue;
+
+                try {
+                    StockData stockData = parseRow(columns);
+                    String ticker = stockData.getTicker();
+
+                    if (!ticker.equals(currentTicker)) {
+                        if (currentTicker != null) {
+                            blockConsumer.accept(currentTicker, prepare(block));
+                            block = new ArrayList<>();
+                        }
+                        if (!seenTickers.add(ticker)) {
+                            throw new IllegalStateException("CSV is not grouped by ticker: " + ticker + " appears in more than one block.");
+                        }
+                        currentTicker = ticker;
+                    }
+
+                    block.add(stockData);
+
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    System.err.println("Error parsing line: " + line);
+                }
+            }
+
+            if (currentTicker != null) {
+                blockConsumer.accept(currentTicker, prepare(block));
+            }
+
+            System.out.println("Streamed historical data for " + seenTickers.size() + " stocks");
 
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    // Replace a stock's history, dropping any resampled series built from the old one
+    private synchronized void storeHistoricalData(String ticker, List<StockData> stockData) {
+        historicalData.put(ticker, stockData);
+        compressedData.remove(ticker);
+        dropResampledData(ticker);
+    }
+
+    // Hold a stock's history compressed; readers get their own decoding view from getHistoricalData
+    private synchronized void storeCompressedData(CompressedSeries series) {
+        historicalData.put(series.getTicker(), series.asList());
+        compressedData.put(series.getTicker(), series);
+        dropResampledData(series.getTicker());
+    }
+
+    private void dropResampledData(String ticker) {
+        for (Map<String, ResampledSeries> seriesByStock : resampledData.values()) {
+            seriesByStock.remove(ticker);
+        }
+    }
+
+    private static void validateHeader(String headerLine) {
+        String[] headers = headerLine != null ? headerLine.split(",") : new String[0];
+        if (headers.length < 8 || !headers[7].trim().equalsIgnoreCase("Ticker")) {
+            throw new IllegalArgumentException("Invalid CSV format. Expected 8 columns with Ticker as last column.");
+        }
+    }
+
+    // Daily rows carry a date; intraday rows a date-time such as "2024-01-02 09:30:00" (any UTC offset is dropped,
+    // keeping exchange-local time)
+    private static LocalDateTime parseTimestamp(String text) {
+        text = text.trim();
+        if (text.length() <= 10) {
+            return LocalDate.parse(text).atStartOfDay();
+        }
+        return LocalDateTime.from(DateTimeFormatter.ISO_DATE_TIME.parse(text.replace(' ', 'T')));
+    }
+
+    // Sort by time and keep only the backtest window
+    private static List<StockData> prepare(List<StockData> stockData) {
+        stockData.sort(Comparator.comparing(StockData::getTimestamp));
+
+        return stockData.stream()
+                .filter(sd -> !sd.getDate().isBefore(START_DATE) && !sd.getDate().isAfter(END_DATE))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // One CSV row split into columns; the last column is Ticker
     @NotNull
-    private static StockData getData(String[] columns, LocalDate date, String ticker) {
+    private static StockData parseRow(String[] columns) {
+        LocalDateTime timestamp = parseTimestamp(columns[0]);
+        String ticker = columns[7].trim();
         BigDecimal open = new BigDecimal(columns[1]);
         BigDecimal high = new BigDecimal(columns[2]);
         BigDecimal low = new BigDecimal(columns[3]);
@@ -83,17 +205,115 @@ public class StockDataManager {
         long volume = Long.parseLong(columns[6]);
 
         // Create StockData object
-        return new StockData(date,open,high,low,close,adjClose,volume, ticker);
+        return new StockData(timestamp,open,high,low,close,adjClose,volume, ticker);
     }
 
+    // Compressed histories get a fresh decoding view per call, since a view is not thread-safe
     public List<StockData> getHistoricalData(String symbol) {
-        return historicalData.get(symbol);
+        CompressedSeries series = compressedData.get(symbol);
+        return series != null ? series.asList() : historicalData.get(symbol);
+    }
+
+    // Bars for `symbol` on the given timeframe; higher timeframes are built once and cached
+    public List<StockData> getResampledData(String symbol, Timeframe timeframe) {
+        if (timeframe == Timeframe.DAILY) {
+            return getHistoricalData(symbol);
+        }
+        ResampledSeries series = getResampledSeries(symbol, timeframe);
+        return series != null ? series.getBars() : null;
+    }
+
+    public synchronized ResampledSeries getResampledSeries(String symbol, Timeframe timeframe) {
+        List<StockData> stockData = getHistoricalData(symbol);
+        if (stockData == null) return null;
+        return resampledData.computeIfAbsent(timeframe, k -> new HashMap<>())
+                .computeIfAbsent(symbol, k -> ResampledSeries.of(symbol, timeframe, stockData));
+    }
+
+    // Append a new daily bar and roll it into every cached higher-timeframe series for that stock
+    public synchronized void appendBar(StockData bar) {
+        List<StockData> stockData = historicalData.computeIfAbsent(bar.getTicker(), k -> new ArrayList<>());
+        if (compressedData.remove(bar.getTicker()) != null) {
+            // Compressed histories are read-only; appending decompresses that stock
+            stockData = new ArrayList<>(stockData);
+            historicalData.put(bar.getTicker(), stockData);
+        }
+        if (!stockData.isEmpty() && !bar.getTimestamp().isAfter(stockData.get(stockData.size() - 1).getTimestamp())) {
+            throw new IllegalArgumentException("Bar for " + bar.getTicker() + " at " + bar.getTimestamp() + " is not after the last loaded bar.");
+        }
+        stockData.add(bar);
+
+        for (Map<String, ResampledSeries> seriesByStock : resampledData.values()) {
+            ResampledSeries series = seriesByStock.get(bar.getTicker());
+            if (series != null) {
+                series.append(bar);
+            }
+        }
     }
 
     public List<String> getStocks() {
         return new ArrayList<>(historicalData.keySet());
     }
 
+    // Replace every loaded history with a compressed read-only view; returns the encoded size in bytes
+    // Returns the size of the written file in bytes (0 if it could not be written). Every stock is encoded
+    // before the file is opened, so a price that cannot be stored exactly leaves no partial file behind.
+    public long saveCompressed(String filePath) {
+        List<CompressedSeries> encoded = new ArrayList<>();
+        try {
+            for (String stock : getStocks()) {
+                CompressedSeries series = compressedData.get(stock);
+                encoded.add(series != null ? series : CompressedSeries.encode(stock, historicalData.get(stock)));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cannot write " + filePath + ": " + e.getMessage());
+            return 0;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(COMPRESSED_MAGIC);
+            out.writeInt(encoded.size());
+            for (CompressedSeries series : encoded) {
+                series.writeTo(out);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            new File(filePath).delete();
+            return 0;
+        }
+        return new File(filePath).length();
+    }
+
+    // Histories loaded this way stay compressed in memory and decode one block at a time
+    public void loadCompressed(String filePath) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            if (in.readInt() != COMPRESSED_MAGIC) {
+                throw new IllegalArgumentException("Not a compressed price store: " + filePath);
+            }
+            int stocks = in.readInt();
+            for (int i = 0; i < stocks; i++) {
+                CompressedSeries series = CompressedSeries.readFrom(in);
+                storeCompressedData(series);
+            }
+
+            System.out.println("Loaded compressed historical data for " + historicalData.size() + " stocks");
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Sorted union of all trading dates across the loaded stocks
+    public List<LocalDate> getTradingDates() {
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        for (String stock : historicalData.keySet()) {
+            for (StockData sd : getHistoricalData(stock)) {
+                dates.add(sd.getDate());
+            }
+        }
+        return new ArrayList<>(dates);
+    }
+
     public List<BigDecimal> calculateEqualWeightedMarketReturns() {
         List<BigDecimal> marketReturns = new ArrayList<>();
         marketReturns.add(BigDecimal.ZERO);
@@ -16,6 +16,16 @@ public class Strategy {
     }
 
 
+    // Higher-timeframe trend: direction of the Gaussian filter's last step (1 rising, -1 falling),
+    // 0 without enough bars. The LSMA is not used here because its value sits far above any price.
+    public static int trendDirection(List<StockData> bars, int period) {
+        if (bars.size() < period + 1) return 0;
+
+        List<BigDecimal> closingPricesList = StockData.extract(bars.subList(bars.size() - period - 1, bars.size()), StockData::getClose);
+        BigDecimal[] gaussianFilter = Indicators.getGaussianFilter(closingPricesList, period, 2);
+        return Integer.signum(gaussianFilter[gaussianFilter.length - 1].compareTo(gaussianFilter[gaussianFilter.length - 2]));
+    }
+
     // Long entry conditions (LSMA crosses above Gaussian Filter with relaxed thresholds)
     public static boolean checkLongEntry(StockData data, Glob glob, List<BigDecimal> closingPricesList, BigDecimal[] gaussianFilter, BigDecimal lsma) {
         if (glob.currPosition != 0) return false; // No long entry if already in a position
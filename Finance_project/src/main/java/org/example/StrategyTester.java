@@ -2,185 +2,306 @@ package org.example;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 public class StrategyTester {
+    // CSV, or a compressed store (StockDataManager.COMPRESSED_EXTENSION) written by the 'compress' mode
+    private static final String DATA_PATH = "/Users/priyanshagrawal/IdeaProjects/Demo-Robert/Finance_project/stock_data/consolidated_stock_data.csv";
     private static final double INITIAL_CAPITAL = 1_000_000.0;
+    private static final int METRICS_WINDOWS_PER_YEAR = 4;  // Rolling Sharpe/Sortino window of one quarter of bars
+    private static final int EWMA_SEED_DAYS = 60;           // Days used to seed the exponentially weighted correlation
+    private static final double ABORT_DRAWDOWN = 1.0;       // Stop early once drawdown exceeds this (1.0 disables)
 
-    public static double calculateMaxDrawdown(List<BigDecimal> portfolioValues) {
-        if (portfolioValues == null || portfolioValues.isEmpty()) {
-            return 0.0;
-        }
-
-        BigDecimal maxDrawdown = BigDecimal.ZERO;
-        BigDecimal peak = portfolioValues.get(0);
-
-        for (BigDecimal value : portfolioValues) {
-            peak = peak.max(value);
-            if (peak.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal currentDrawdown = peak.subtract(value).divide(peak, MathContext.DECIMAL128);
-                maxDrawdown = maxDrawdown.max(currentDrawdown);
-            }
-        }
-
-        return maxDrawdown.doubleValue();
-    }
-
-    private static void simulate() {
+    // Run the strategy on `timeframe` bars, optionally filtering entries by the trend on a higher timeframe
+    private static void simulate(Timeframe timeframe, Timeframe trendTimeframe) {
         System.out.println("Simulation started.");
 
         StockDataManager dataManager = new StockDataManager();
-        dataManager.loadHistoricalDataFromCSV("/Users/priyanshagrawal/IdeaProjects/Demo-Robert/Finance_project/stock_data/consolidated_stock_data.csv");
+        dataManager.loadHistoricalData(DATA_PATH);
         System.out.println("Data loaded successfully.");
 
         List<String> stocks = dataManager.getStocks();
         System.out.printf("Total stocks to process: %d%n", stocks.size());
 
-        Map<String, BigDecimal> cashBalance = new HashMap<>();  // Cash available for each stock
-        Map<String, Long> sharesHeld = new HashMap<>();        // Number of shares held for each stock
-        Map<String, Strategy.Glob> globMap = new HashMap<>();  // Separate glob for each stock
-        Map<String, List<BigDecimal>> stockPortfolioValues = new HashMap<>(); // Track values per stock
+        Map<String, TickerSimulation> simulations = new HashMap<>(); // Cash, shares and glob for each stock
+        PerformanceMetrics metrics = new PerformanceMetrics(metricsWindow(timeframe)); // Portfolio metrics, fed once per bar
         BigDecimal initialStockAllocation = BigDecimal.valueOf(INITIAL_CAPITAL / stocks.size());
 
-        // Initialize maps for each stock
+        // Initialize a simulation for each stock
         for (String stock : stocks) {
-            cashBalance.put(stock, initialStockAllocation);
-            sharesHeld.put(stock, 0L);
-            globMap.put(stock, new Strategy.Glob());
-            globMap.get(stock).capital = initialStockAllocation;
-            stockPortfolioValues.put(stock, new ArrayList<>());
+            simulations.put(stock, new TickerSimulation(stock, initialStockAllocation, true));
         }
 
         // Find the maximum number of trading days across all stocks
         int maxTradingDays = stocks.stream()
-                .mapToInt(stock -> dataManager.getHistoricalData(stock).size())
+                .mapToInt(stock -> dataManager.getResampledData(stock, timeframe).size())
                 .max()
                 .orElse(0);
 
         // Process each day for all stocks
-        for (int day = 14; day < maxTradingDays; day++) {
+        for (int day = TickerSimulation.LOOKBACK; day < maxTradingDays; day++) {
+            BigDecimal dailyTotal = BigDecimal.ZERO;
+            BigDecimal grossExposure = BigDecimal.ZERO;
+            BigDecimal tradedNotional = BigDecimal.ZERO;
+            boolean anyProcessed = false;
+
             for (String stock : stocks) {
-                List<StockData> stockData = dataManager.getHistoricalData(stock);
+                List<StockData> stockData = dataManager.getResampledData(stock, timeframe);
                 if (day >= stockData.size()) continue;
 
                 System.out.printf("Processing stock: %s for day %d%n", stock, day);
 
-                List<BigDecimal> closingPricesList = new ArrayList<>();
-                List<BigDecimal> highs = new ArrayList<>();
-                List<BigDecimal> lows = new ArrayList<>();
-
                 // Get historical data up to current day
-                for (int j = Math.max(0, day - 14); j <= day; j++) {
-                    StockData historicalData = stockData.get(j);
-                    closingPricesList.add(historicalData.getClose());
-                    highs.add(historicalData.getHigh());
-                    lows.add(historicalData.getLow());
-                }
-
+                List<BigDecimal> closingPricesList = TickerSimulation.closingWindow(stockData, day);
                 StockData data = stockData.get(day);
-                Strategy.Glob glob = globMap.get(stock);
+                TickerSimulation simulation = simulations.get(stock);
 
                 System.out.println("  Calculating indicators...");
-                BigDecimal lsma = Indicators.calculateLSMA(closingPricesList, 14);
-                BigDecimal[] gaussianFilter = Indicators.getGaussianFilter(closingPricesList, 14, 2);
+                BigDecimal lsma = TickerSimulation.calculateLSMA(closingPricesList);
+                BigDecimal[] gaussianFilter = TickerSimulation.calculateGaussianFilter(closingPricesList);
                 System.out.println("  Indicators calculated.");
 
-                BigDecimal closingPrice = data.getAdjClose();
-                if (closingPrice.compareTo(BigDecimal.ZERO) <= 0) continue;
-
-                // Long Entry
-                if (Strategy.checkLongEntry(data, glob, closingPricesList, gaussianFilter, lsma)) {
-                    System.out.println("  Long entry triggered.");
-                    long bought = Math.min(cashBalance.get(stock).divide(closingPrice, MathContext.DECIMAL128).longValue(), data.getVolume());
-                    sharesHeld.put(stock, sharesHeld.get(stock) + bought);
-                    cashBalance.put(stock, cashBalance.get(stock).subtract(closingPrice.multiply(BigDecimal.valueOf(bought))));
-                    System.out.printf("  Bought %d shares of %s at $%.2f%n", bought, stock, closingPrice.doubleValue());
+                int trendDirection = 0;
+                if (trendTimeframe != null) {
+                    ResampledSeries trendSeries = dataManager.getResampledSeries(stock, trendTimeframe);
+                    trendDirection = Strategy.trendDirection(trendSeries.completedBefore(data.getDate()), TickerSimulation.LOOKBACK);
                 }
 
-                // Short Entry
-                if (Strategy.checkShortEntry(data, glob, closingPricesList, gaussianFilter, lsma)) {
-                    System.out.println("  Short entry triggered.");
-                    long sold = Math.min(sharesHeld.get(stock), data.getVolume());
-                    sharesHeld.put(stock, sharesHeld.get(stock) - sold);
-                    cashBalance.put(stock, cashBalance.get(stock).add(closingPrice.multiply(BigDecimal.valueOf(sold))));
-                    System.out.printf("  Short sold %d shares of %s at $%.2f%n", sold, stock, closingPrice.doubleValue());
-                }
+                if (!simulation.step(data, closingPricesList, lsma, gaussianFilter, trendDirection)) continue;
 
-                // Long Exit
-                if (glob.currPosition == 1 && Strategy.checkLongExit(data, glob, closingPricesList)) {
-                    System.out.println("  Long exit triggered.");
-                    long sold = sharesHeld.get(stock);
-                    sharesHeld.put(stock, 0L);
-                    cashBalance.put(stock, cashBalance.get(stock).add(closingPrice.multiply(BigDecimal.valueOf(sold))));
-                    System.out.printf("  Sold %d shares of %s at $%.2f%n", sold, stock, closingPrice.doubleValue());
-                }
+                dailyTotal = dailyTotal.add(simulation.getPositionValue());
+                grossExposure = grossExposure.add(simulation.getMarketValue().abs());
+                tradedNotional = tradedNotional.add(simulation.getTradedNotional());
+                anyProcessed = true;
+            }
 
-                // Short Exit
-                if (glob.currPosition == -1 && Strategy.checkShortExit(data, glob, closingPricesList)) {
-                    System.out.println("  Short exit triggered.");
-                    long bought = Math.min(cashBalance.get(stock).divide(closingPrice, MathContext.DECIMAL128).longValue(), data.getVolume());
-                    sharesHeld.put(stock, sharesHeld.get(stock) + bought);
-                    cashBalance.put(stock, cashBalance.get(stock).subtract(closingPrice.multiply(BigDecimal.valueOf(bought))));
-                    System.out.printf("  Covered %d shares of %s at $%.2f%n", bought, stock, closingPrice.doubleValue());
-                }
+            if (!anyProcessed) continue;
+            metrics.update(dailyTotal.doubleValue(), grossExposure.doubleValue(), tradedNotional.doubleValue());
 
-                // Calculate current position value (cash + market value of shares)
-                BigDecimal positionValue = cashBalance.get(stock).add(closingPrice.multiply(BigDecimal.valueOf(sharesHeld.get(stock))));
-                stockPortfolioValues.get(stock).add(positionValue);
-                System.out.printf("  Position value: $%.2f%n", positionValue.doubleValue());
+            // Mid-run progress (roughly once a year) and early abort
+            if (metrics.getDays() % timeframe.getPeriodsPerYear() == 0) {
+                System.out.printf("Bar %d: value $%.2f, drawdown %.2f%%, rolling Sharpe %.4f%n",
+                        day, metrics.getLastValue(), metrics.getCurrentDrawdown() * 100, metrics.getRollingSharpe());
             }
-        }
-
-        // Combine all stock portfolio values into daily portfolio values
-        List<BigDecimal> dailyPortfolioValues = new ArrayList<>();
-        for (int i = 0; i < maxTradingDays - 14; i++) {
-            BigDecimal dailyTotal = BigDecimal.ZERO;
-            for (String stock : stocks) {
-                List<BigDecimal> stockValues = stockPortfolioValues.get(stock);
-                if (i < stockValues.size()) {
-                    dailyTotal = dailyTotal.add(stockValues.get(i));
-                }
+            if (metrics.isHopeless(ABORT_DRAWDOWN)) {
+                System.out.printf("Aborting on bar %d: drawdown %.2f%% exceeds limit.%n", day, metrics.getMaxDrawdown() * 100);
+                break;
             }
-            dailyPortfolioValues.add(dailyTotal);
         }
 
-        // Calculate Sharpe ratio
-        List<BigDecimal> dailyReturns = new ArrayList<>();
-        for (int i = 1; i < dailyPortfolioValues.size(); i++) {
-            BigDecimal dailyReturn = dailyPortfolioValues.get(i).subtract(dailyPortfolioValues.get(i - 1))
-                    .divide(dailyPortfolioValues.get(i - 1), MathContext.DECIMAL128);
-            dailyReturns.add(dailyReturn);
-        }
+        printResults(metrics, INITIAL_CAPITAL, timeframe.getPeriodsPerYear());
+        System.out.println("Simulation complete.");
+    }
 
-        BigDecimal averageReturn = dailyReturns.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
-        BigDecimal variance = dailyReturns.stream()
-                .map(r -> r.subtract(averageReturn).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
-        BigDecimal standardDeviation = BigDecimal.valueOf(Math.sqrt(variance.doubleValue()));
-        BigDecimal sharpeRatio = averageReturn.divide(standardDeviation, MathContext.DECIMAL128);
+    // Rolling metrics window in bars of `timeframe`
+    private static int metricsWindow(Timeframe timeframe) {
+        return Math.max(2, timeframe.getPeriodsPerYear() / METRICS_WINDOWS_PER_YEAR);
+    }
 
+    private static void printResults(PerformanceMetrics metrics, double initialCapital, int periodsPerYear) {
         // Calculate final performance metrics
-        double maxDrawdown = calculateMaxDrawdown(dailyPortfolioValues);
-        BigDecimal totalPnL = !dailyPortfolioValues.isEmpty() ?
-                dailyPortfolioValues.get(dailyPortfolioValues.size() - 1)
-                        .subtract(BigDecimal.valueOf(INITIAL_CAPITAL)) :
+        double maxDrawdown = metrics.getMaxDrawdown();
+        BigDecimal totalPnL = metrics.getDays() > 0 ?
+                BigDecimal.valueOf(metrics.getLastValue()).subtract(BigDecimal.valueOf(initialCapital)) :
                 BigDecimal.ZERO;
-        BigDecimal finalCapital = BigDecimal.valueOf(INITIAL_CAPITAL).add(totalPnL);
+        BigDecimal finalCapital = BigDecimal.valueOf(initialCapital).add(totalPnL);
 
         System.out.println("\nBacktest Results:");
-        System.out.printf("Initial Capital: $%.2f%n", INITIAL_CAPITAL);
+        System.out.printf("Initial Capital: $%.2f%n", initialCapital);
         System.out.printf("Total P&L: $%.2f%n", totalPnL.doubleValue());
         System.out.printf("Final Capital: $%.2f%n", finalCapital.doubleValue());
-        System.out.printf("Return: %.2f%%%n", (totalPnL.divide(BigDecimal.valueOf(INITIAL_CAPITAL), MathContext.DECIMAL128).multiply(BigDecimal.valueOf(100))).doubleValue());
+        System.out.printf("Return: %.2f%%%n", (totalPnL.divide(BigDecimal.valueOf(initialCapital), MathContext.DECIMAL128).multiply(BigDecimal.valueOf(100))).doubleValue());
         System.out.printf("Max Drawdown: %.2f%%%n", maxDrawdown * 100);
-        System.out.printf("Annualized Sharpe Ratio: %.6f%n%n", sharpeRatio.doubleValue() * Math.sqrt(252));
+        System.out.printf("Annualized Sharpe Ratio: %.6f%n", metrics.getSharpe() * Math.sqrt(periodsPerYear));
+        System.out.printf("Annualized Sortino Ratio: %.6f%n", metrics.getSortino() * Math.sqrt(periodsPerYear));
+        System.out.printf("Average Turnover per Bar: %.4f%n", metrics.getAverageTurnover());
+        System.out.printf("Average Gross Exposure: %.2f%%%n", metrics.getAverageExposure() * 100);
+        System.out.printf("Hit Rate: %.2f%%%n%n", metrics.getHitRate() * 100);
+    }
 
-        System.out.println("Simulation complete.");
+    // Overlap parsing, indicator computation and simulation; the capital split needs the universe size up front
+    // Stocks with no bars in the backtest window still count, so the capital split matches simulate()
+    private static void simulatePipelined() {
+        System.out.println("Pipelined simulation started.");
+        long start = System.nanoTime();
+
+        StockDataManager dataManager = new StockDataManager();
+        int stockCount = dataManager.countTickersInCSV(DATA_PATH);
+        if (stockCount == 0) return;
+
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        BigDecimal initialStockAllocation = BigDecimal.valueOf(INITIAL_CAPITAL / stockCount);
+        PipelinedBacktest backtest = new PipelinedBacktest(initialStockAllocation, workers, workers);
+
+        PipelinedBacktest.RunResult run = backtest.run(dataManager, DATA_PATH, metricsWindow(Timeframe.DAILY), result -> {
+            BigDecimal finalValue = result.getFinalValue();
+            System.out.printf("  %-8s done after %.1f ms, final value $%.2f%n", result.ticker,
+                    (System.nanoTime() - start) / 1e6, finalValue != null ? finalValue.doubleValue() : 0.0);
+        });
+
+        if (run.completedStocks != stockCount) {
+            throw new IllegalStateException("Capital was split across " + stockCount + " stocks but "
+                    + run.completedStocks + " were simulated.");
+        }
+        printResults(run.metrics, INITIAL_CAPITAL, Timeframe.DAILY.getPeriodsPerYear());
+        System.out.printf("Pipelined simulation complete in %.1f ms.%n", (System.nanoTime() - start) / 1e6);
+    }
+
+    // Write the loaded data as a compressed column store and report the footprint
+    private static void compress(String outputPath) {
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.loadHistoricalData(DATA_PATH);
+
+        long bars = dataManager.getStocks().stream()
+                .mapToLong(stock -> dataManager.getHistoricalData(stock).size())
+                .sum();
+        long compressedBytes = dataManager.saveCompressed(outputPath);
+        if (compressedBytes == 0) return;
+
+        // Baseline: 8-byte columns for the five prices and volume
+        System.out.printf("Wrote %d bars as %d bytes (%.2f bytes/bar, %.1fx smaller than 8-byte columns)%n",
+                bars, compressedBytes, (double) compressedBytes / Math.max(bars, 1), 48.0 * bars / Math.max(compressedBytes, 1));
+    }
+
+    // Rank the universe on a single date by ADX (trend strength), reporting RSI and Z-Score alongside
+    private static void scan(LocalDate date, int topK) {
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.loadHistoricalData(DATA_PATH);
+
+        List<LocalDate> tradingDates = dataManager.getTradingDates();
+        if (tradingDates.isEmpty()) return;
+        LocalDate scanDate = date != null ? date : tradingDates.get(tradingDates.size() - 1);
+
+        SignalScanner scanner = new SignalScanner(dataManager, 14, EnumSet.allOf(SignalScanner.Signal.class));
+        long start = System.nanoTime();
+        List<SignalScanner.Ranked> ranked = scanner.scan(scanDate, snapshot -> snapshot.adx, topK);
+        System.out.printf("Scanned %d stocks for %s in %.2f ms%n",
+                dataManager.getStocks().size(), scanDate, (System.nanoTime() - start) / 1e6);
+
+        for (SignalScanner.Ranked entry : ranked) {
+            SignalScanner.Snapshot snapshot = entry.snapshot;
+            System.out.printf("  %-8s ADX %8.2f  RSI %6.2f  Z %7.4f%n",
+                    snapshot.ticker, snapshot.adx, snapshot.rsi, snapshot.zScore);
+        }
+    }
+
+    // Report the most correlated pairs, over the full history and under the exponentially weighted estimate
+    private static void correlate(double lambda, int topPairs) {
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.loadHistoricalData(DATA_PATH);
+
+        CovarianceEngine engine = new CovarianceEngine(dataManager);
+        int seedDays = Math.min(EWMA_SEED_DAYS, engine.getDates().size());
+        if (engine.size() < 2 || seedDays < 2) {
+            System.err.println("Need at least two stocks and two trading days.");
+            return;
+        }
+        long start = System.nanoTime();
+        double[] fullSample = engine.computeCorrelation();
+        engine.initializeEwma(lambda, seedDays);
+        while (engine.advanceEwma()) {
+            // Roll the estimate to the last trading date
+        }
+        double[] ewma = engine.getEwmaCorrelation();
+        System.out.printf("Correlated %d stocks over %d days in %.2f ms%n",
+                engine.size(), engine.getDates().size(), (System.nanoTime() - start) / 1e6);
+
+        printTopPairs("Full sample", engine, fullSample, topPairs);
+        printTopPairs(String.format("EWMA (lambda %.2f)", lambda), engine, ewma, topPairs);
+    }
+
+    private static void printTopPairs(String label, CovarianceEngine engine, double[] corr, int topPairs) {
+        int n = engine.size();
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (!Double.isNaN(corr[i * n + j])) pairs.add(new int[]{i, j});
+            }
+        }
+        pairs.sort(Comparator.comparingDouble((int[] pair) -> corr[pair[0] * n + pair[1]]).reversed());
+
+        System.out.println(label + ":");
+        for (int[] pair : pairs.subList(0, Math.min(topPairs, pairs.size()))) {
+            System.out.printf("  %-8s %-8s %7.4f%n",
+                    engine.getTickers().get(pair[0]), engine.getTickers().get(pair[1]), corr[pair[0] * n + pair[1]]);
+        }
     }
 
     public static void main(String[] args) {
-        simulate();
+        String mode = args.length > 0 ? args[0].toLowerCase() : "daily";
+        switch (mode) {
+            case "compress":
+                if (args.length != 2) break;
+                compress(args[1]);
+                return;
+            case "pipeline":
+                if (args.length > 1) break;
+                simulatePipelined();
+                return;
+            case "scan":
+                LocalDate date = args.length > 1 ? parseDate(args[1]) : null;
+                Integer topK = args.length > 2 ? parseInt(args[2]) : Integer.valueOf(20);
+                if ((args.length > 1 && date == null) || topK == null || args.length > 3) break;
+                scan(date, topK);
+                return;
+            case "correlation":
+                Double lambda = args.length > 1 ? parseDouble(args[1]) : Double.valueOf(0.94);
+                Integer topPairs = args.length > 2 ? parseInt(args[2]) : Integer.valueOf(10);
+                if (lambda == null || lambda <= 0 || lambda >= 1 || topPairs == null || args.length > 3) break;
+                correlate(lambda, topPairs);
+                return;
+            default:
+                Timeframe timeframe = args.length > 0 ? parseTimeframe(args[0]) : Timeframe.DAILY;
+                Timeframe trendTimeframe = args.length > 1 ? parseTimeframe(args[1]) : null;
+                if (timeframe == null || (args.length > 1 && trendTimeframe == null) || args.length > 2) break;
+                simulate(timeframe, trendTimeframe);
+                return;
+        }
+        printUsage();
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: StrategyTester [daily|weekly|monthly [trendTimeframe]]");
+        System.err.println("       StrategyTester scan [yyyy-MM-dd] [topK]");
+        System.err.println("       StrategyTester correlation [lambda] [topPairs]");
+        System.err.println("       StrategyTester pipeline          (CSV input only)");
+        System.err.println("       StrategyTester compress <output.bars>");
+    }
+
+    // Case-insensitive timeframe name, or null if it is not one
+    private static Timeframe parseTimeframe(String name) {
+        for (Timeframe timeframe : Timeframe.values()) {
+            if (timeframe.name().equalsIgnoreCase(name)) return timeframe;
+        }
+        return null;
+    }
+
+    private static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            System.err.println("Invalid date: " + text);
+            return null;
+        }
+    }
+
+    private static Double parseDouble(String text) {
+        try {
+            return Double.valueOf(text);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + text);
+            return null;
+        }
+    }
+
+    private static Integer parseInt(String text) {
+        try {
+            return Integer.valueOf(text);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + text);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TickerSimulation {
+    public static final int LOOKBACK = 14;
+
+    private final String ticker;
+    private final Strategy.Glob glob = new Strategy.Glob();
+    private final boolean verbose;
+    private BigDecimal cash;
+    private long shares;
+
+    // Results of the most recent step
+    private BigDecimal marketValue = BigDecimal.ZERO;
+    private BigDecimal positionValue = BigDecimal.ZERO;
+    private BigDecimal tradedNotional = BigDecimal.ZERO;
+
+    public TickerSimulation(String ticker, BigDecimal allocation, boolean verbose) {
+        this.ticker = ticker;
+        this.cash = allocation;
+        this.glob.capital = allocation;
+        this.verbose = verbose;
+    }
+
+    // Closing prices from LOOKBACK days before `day` up to and including `day`
+    public static List<BigDecimal> closingWindow(List<StockData> stockData, int day) {
+        List<BigDecimal> closingPricesList = new ArrayList<>();
+        for (int j = Math.max(0, day - LOOKBACK); j <= day; j++) {
+            closingPricesList.add(stockData.get(j).getClose());
+        }
+        return closingPricesList;
+    }
+
+    public static BigDecimal calculateLSMA(List<BigDecimal> closingPricesList) {
+        return Indicators.calculateLSMA(closingPricesList, LOOKBACK);
+    }
+
+    public static BigDecimal[] calculateGaussianFilter(List<BigDecimal> closingPricesList) {
+        return Indicators.getGaussianFilter(closingPricesList, LOOKBACK, 2);
+    }
+
+    // Apply the strategy for one bar; returns false if the bar was skipped (non-positive price)
+    public boolean step(StockData data, List<BigDecimal> closingPricesList, BigDecimal lsma, BigDecimal[] gaussianFilter) {
+        return step(data, closingPricesList, lsma, gaussianFilter, 0);
+    }
+
+    // As above, only taking entries in the direction of a higher-timeframe trend (0 = no filter)
+    public boolean step(StockData data, List<BigDecimal> closingPricesList, BigDecimal lsma, BigDecimal[] gaussianFilter, int trendDirection) {
+        BigDecimal closingPrice = data.getAdjClose();
+        if (closingPrice.compareTo(BigDecimal.ZERO) <= 0) return false;
+
+        tradedNotional = BigDecimal.ZERO;
+
+        // Long Entry
+        if (trendDirection >= 0 && Strategy.checkLongEntry(data, glob, closingPricesList, gaussianFilter, lsma)) {
+            log("  Long entry triggered.%n");
+            long bought = Math.min(cash.divide(closingPrice, MathContext.DECIMAL128).longValue(), data.getVolume());
+            buy(bought, closingPrice);
+            log("  Bought %d shares of %s at $%.2f%n", bought, ticker, closingPrice.doubleValue());
+        }
+
+        // Short Entry
+        if (trendDirection <= 0 && Strategy.checkShortEntry(data, glob, closingPricesList, gaussianFilter, lsma)) {
+            log("  Short entry triggered.%n");
+            long sold = Math.min(shares, data.getVolume());
+            sell(sold, closingPrice);
+            log("  Short sold %d shares of %s at $%.2f%n", sold, ticker, closingPrice.doubleValue());
+        }
+
+        // Long Exit
+        if (glob.currPosition == 1 && Strategy.checkLongExit(data, glob, closingPricesList)) {
+            log("  Long exit triggered.%n");
+            long sold = shares;
+            sell(sold, closingPrice);
+            log("  Sold %d shares of %s at $%.2f%n", sold, ticker, closingPrice.doubleValue());
+        }
+
+        // Short Exit
+        if (glob.currPosition == -1 && Strategy.checkShortExit(data, glob, closingPricesList)) {
+            log("  Short exit triggered.%n");
+            long bought = Math.min(cash.divide(closingPrice, MathContext.DECIMAL128).longValue(), data.getVolume());
+            buy(bought, closingPrice);
+            log("  Covered %d shares of %s at $%.2f%n", bought, ticker, closingPrice.doubleValue());
+        }
+
+        // Calculate current position value (cash + market value of shares)
+        marketValue = closingPrice.multiply(BigDecimal.valueOf(shares));
+        positionValue = cash.add(marketValue);
+        log("  Position value: $%.2f%n", positionValue.doubleValue());
+        return true;
+    }
+
+    private void buy(long quantity, BigDecimal price) {
+        BigDecimal notional = price.multiply(BigDecimal.valueOf(quantity));
+        shares += quantity;
+        cash = cash.subtract(notional);
+        tradedNotional = tradedNotional.add(notional);
+    }
+
+    private void sell(long quantity, BigDecimal price) {
+        BigDecimal notional = price.multiply(BigDecimal.valueOf(quantity));
+        shares -= quantity;
+        cash = cash.add(notional);
+        tradedNotional = tradedNotional.add(notional);
+    }
+
+    private void log(String format, Object... args) {
+        if (verbose) System.out.printf(format, args);
+    }
+
+    public String getTicker() { return ticker; }
+    public BigDecimal getCash() { return cash; }
+    public long getShares() { return shares; }
+    public BigDecimal getMarketValue() { return marketValue; }
+    public BigDecimal getPositionValue() { return positionValue; }
+    public BigDecimal getTradedNotional() { return tradedNotional; }
+}
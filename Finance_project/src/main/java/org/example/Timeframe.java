@@ -0,0 +1,33 @@
+package org.example;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+public enum Timeframe {
+    DAILY(252),
+    WEEKLY(52),
+    MONTHLY(12);
+
+    private final int periodsPerYear;
+
+    Timeframe(int periodsPerYear) {
+        this.periodsPerYear = periodsPerYear;
+    }
+
+    // Number of bars per year, used to annualize ratios
+    public int getPeriodsPerYear() {
+        return periodsPerYear;
+    }
+
+    // First calendar day of the bucket containing `date`
+    public LocalDate bucketStart(LocalDate date) {
+        switch (this) {
+            case WEEKLY:
+                return date.with(DayOfWeek.MONDAY);
+            case MONTHLY:
+                return date.withDayOfMonth(1);
+            default:
+                return date;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedSeriesTest {
+
+    // Float-derived prices with a random walk, as in the bundled CSV; some keep a trailing ".0"-style scale
+    private static List<StockData> dailyBars(int count, long seed) {
+        Random random = new Random(seed);
+        List<StockData> bars = new ArrayList<>();
+        LocalDate date = LocalDate.of(2020, 1, 2);
+        double price = 80.0;
+        for (int i = 0; i < count; i++) {
+            price *= 1 + random.nextGaussian() * 0.02;
+            BigDecimal close = price(price, random);
+            bars.add(new StockData(date, price(price * 0.99, random), price(price * 1.01, random), price(price * 0.98, random),
+                    close, price(price * 0.97, random), random.nextInt(5_000_000), "TEST"));
+            date = date.plusDays(date.getDayOfWeek().getValue() >= 5 ? 3 : 1);
+            if (random.nextInt(20) == 0) date = date.plusDays(1);          // Irregular holidays
+        }
+        return bars;
+    }
+
+    private static BigDecimal price(double value, Random random) {
+        BigDecimal decimal = CompressedSeries.shortestDecimal((float) value);
+        return random.nextInt(10) == 0 ? decimal.setScale(decimal.scale() + 1 + random.nextInt(3)) : decimal;
+    }
+
+    private static void assertSameBars(List<StockData> expected, List<StockData> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            StockData e = expected.get(i);
+            StockData a = actual.get(i);
+            String at = "bar " + i;
+            assertEquals(e.getTimestamp(), a.getTimestamp(), at);
+            assertEquals(e.getDate(), a.getDate(), at);
+            assertEquals(e.getOpen(), a.getOpen(), at);
+            assertEquals(e.getHigh(), a.getHigh(), at);
+            assertEquals(e.getLow(), a.getLow(), at);
+            assertEquals(e.getClose(), a.getClose(), at);
+            assertEquals(e.getAdjClose(), a.getAdjClose(), at);
+            assertEquals(e.getVolume(), a.getVolume(), at);
+            assertEquals(e.getTicker(), a.getTicker(), at);
+        }
+    }
+
+    private static void assertClosesMatch(CompressedSeries series, List<StockData> bars) {
+        double[] closes = new double[CompressedSeries.BLOCK_SIZE];
+        long[] scratch = new long[CompressedSeries.BLOCK_SIZE];
+        CompressedSeries.Block block = new CompressedSeries.Block();
+        for (int b = 0; b < series.blockCount(); b++) {
+            int count = series.decodeCloses(b, closes, scratch);
+            series.decodeBlock(b, block);
+            assertEquals(block.size, count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(bars.get(b * CompressedSeries.BLOCK_SIZE + i).getClose().doubleValue(), closes[i]);
+                assertEquals(block.close[i], closes[i]);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsAcrossBlockBoundaries() {
+        for (int size : new int[]{1, 2, 1023, 1024, 1025, 2049}) {
+            List<StockData> bars = dailyBars(size, size);
+            CompressedSeries series = CompressedSeries.encode("TEST", bars);
+            assertEquals(size, series.size());
+            assertEquals((size + CompressedSeries.BLOCK_SIZE - 1) / CompressedSeries.BLOCK_SIZE, series.blockCount());
+            assertSameBars(bars, series.asList());
+            assertClosesMatch(series, bars);
+        }
+    }
+
+    @Test
+    public void roundTripsColumnsWiderThan56Bits() {
+        // Volumes near Long.MAX_VALUE and prices that flip sign and magnitude force 57-64 bit columns,
+        // which take the reader's straddling-load path at every bit offset
+        List<StockData> bars = new ArrayList<>();
+        String[] prices = {"1.5", "-2.25", "1.0E+300", "-3.0E-300", "0.0020", "123456.789", "-0.5", "7"};
+        LocalDate date = LocalDate.of(2021, 6, 1);
+        for (int i = 0; i < 1500; i++) {
+            BigDecimal close = new BigDecimal(prices[i % prices.length]);
+            BigDecimal other = new BigDecimal(prices[(i * 3 + 1) % prices.length]);
+            long volume = i % 2 == 0 ? Long.MAX_VALUE - i : (1L << (57 + i % 6)) + i;
+            bars.add(new StockData(date.plusDays(i * 7L % 11 + i), other, close, other, close, other, volume, "WIDE"));
+        }
+        CompressedSeries series = CompressedSeries.encode("WIDE", bars);
+        assertSameBars(bars, series.asList());
+        assertClosesMatch(series, bars);
+    }
+
+    @Test
+    public void roundTripsIntradayTimestamps() {
+        List<StockData> bars = new ArrayList<>();
+        BigDecimal price = new BigDecimal("99.9485092163086");
+        LocalDateTime open = LocalDateTime.of(2024, 3, 4, 9, 30);
+        for (int day = 0; day < 5; day++) {
+            for (int minute = 0; minute < 390; minute++) {
+                if (minute % 37 == 5) continue;                               // Missing minutes
+                bars.add(new StockData(open.plusDays(day).plusMinutes(minute), price, price, price, price, price, minute, "MIN"));
+            }
+        }
+        bars.add(new StockData(open.plusDays(6).plusSeconds(17), price, price, price, price, price, 1, "MIN"));
+        CompressedSeries series = CompressedSeries.encode("MIN", bars);
+        assertSameBars(bars, series.asList());
+    }
+
+    @Test
+    public void roundTripsThroughStreams() throws IOException {
+        List<StockData> bars = dailyBars(2500, 7);
+        CompressedSeries series = CompressedSeries.encode("TEST", bars);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            series.writeTo(out);
+        }
+        CompressedSeries read;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = CompressedSeries.readFrom(in);
+        }
+
+        assertEquals("TEST", read.getTicker());
+        assertEquals(series.sizeInBytes(), read.sizeInBytes());
+        assertSameBars(bars, read.asList());
+        assertClosesMatch(read, bars);
+    }
+
+    @Test
+    public void rejectsValuesItCannotStoreExactly() {
+        BigDecimal exact = new BigDecimal("10.5");
+        BigDecimal notADouble = new BigDecimal("0.1000000000000000000001");
+        LocalDate date = LocalDate.of(2022, 1, 3);
+        List<StockData> inexactPrice = List.of(new StockData(date, exact, exact, exact, notADouble, exact, 1, "BAD"));
+        assertThrows(IllegalArgumentException.class, () -> CompressedSeries.encode("BAD", inexactPrice));
+
+        List<StockData> subSecond = List.of(new StockData(date.atTime(9, 30).withNano(5), exact, exact, exact, exact, exact, 1, "BAD"));
+        assertThrows(IllegalArgumentException.class, () -> CompressedSeries.encode("BAD", subSecond));
+    }
+}
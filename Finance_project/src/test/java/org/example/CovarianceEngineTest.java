@@ -0,0 +1,210 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CovarianceEngineTest {
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    // prices[ticker][day], NaN where the ticker has no bar; ticker 0 trades every day so the date axis is complete
+    private static double[][] raggedPrices(int tickers, int days, long seed) {
+        Random random = new Random(seed);
+        double[][] prices = new double[tickers][days];
+        for (int i = 0; i < tickers; i++) {
+            int first = i == 0 ? 0 : random.nextInt(days / 3);
+            int last = i == 0 ? days : days - random.nextInt(days / 3);
+            double beta = random.nextGaussian();
+            double price = 50 + random.nextInt(100);
+            Random market = new Random(seed + 1);
+            for (int t = 0; t < days; t++) {
+                double move = 0.01 * beta * market.nextGaussian() + 0.02 * random.nextGaussian();
+                price *= 1 + move;
+                boolean missing = t < first || t >= last || (i != 0 && random.nextInt(20) == 0);
+                prices[i][t] = missing ? Double.NaN : price;
+            }
+        }
+        return prices;
+    }
+
+    private static StockDataManager load(double[][] prices) {
+        StockDataManager dataManager = new StockDataManager();
+        for (int t = 0; t < prices[0].length; t++) {
+            for (int i = 0; i < prices.length; i++) {
+                if (Double.isNaN(prices[i][t])) continue;
+                BigDecimal price = BigDecimal.valueOf(prices[i][t]);
+                dataManager.appendBar(new StockData(START.plusDays(t), price, price, price, price, price, 1000, ticker(i)));
+            }
+        }
+        return dataManager;
+    }
+
+    // Zero-padded so the engine's sorted order matches the row order here
+    private static String ticker(int i) {
+        return String.format("T%03d", i);
+    }
+
+    // One-day returns, NaN on missing days and on the first day after a gap
+    private static double[][] returns(double[][] prices) {
+        double[][] returns = new double[prices.length][prices[0].length];
+        for (int i = 0; i < prices.length; i++) {
+            returns[i][0] = Double.NaN;
+            for (int t = 1; t < prices[i].length; t++) {
+                returns[i][t] = prices[i][t] / prices[i][t - 1] - 1;
+            }
+        }
+        return returns;
+    }
+
+    // Naive O(n^2 * T) pairwise-complete reference: {covariance, correlation} from each pair's overlap
+    private static double[] naivePair(double[] x, double[] y) {
+        int count = 0;
+        double sumX = 0, sumY = 0;
+        for (int t = 0; t < x.length; t++) {
+            if (Double.isNaN(x[t]) || Double.isNaN(y[t])) continue;
+            count++;
+            sumX += x[t];
+            sumY += y[t];
+        }
+        if (count < 2) return new double[]{Double.NaN, Double.NaN};
+        double meanX = sumX / count, meanY = sumY / count;
+        double sxx = 0, syy = 0, sxy = 0;
+        for (int t = 0; t < x.length; t++) {
+            if (Double.isNaN(x[t]) || Double.isNaN(y[t])) continue;
+            sxx += (x[t] - meanX) * (x[t] - meanX);
+            syy += (y[t] - meanY) * (y[t] - meanY);
+            sxy += (x[t] - meanX) * (y[t] - meanY);
+        }
+        return new double[]{sxy / (count - 1), sxy / Math.sqrt(sxx * syy)};
+    }
+
+    private static void assertClose(double expected, double actual, double tolerance, String message) {
+        if (Double.isNaN(expected)) {
+            assertTrue(Double.isNaN(actual), message + ": expected NaN but was " + actual);
+        } else {
+            assertEquals(expected, actual, tolerance * Math.max(1, Math.abs(expected)), message);
+        }
+    }
+
+    @Test
+    public void blockedKernelMatchesNaiveReference() {
+        // 130 tickers span three partial 64-wide tiles and 601 days span three partial 256-day blocks
+        double[][] prices = raggedPrices(130, 601, 11);
+        double[][] returns = returns(prices);
+        CovarianceEngine engine = new CovarianceEngine(load(prices));
+        assertEquals(130, engine.size());
+        assertEquals(601, engine.getDates().size());
+
+        int[][] ranges = {{0, 601}, {37, 400}, {300, 301}};
+        for (int[] range : ranges) {
+            double[] cov = engine.computeCovariance(range[0], range[1]);
+            double[] corr = engine.computeCorrelation(range[0], range[1]);
+            for (int i = 0; i < 130; i++) {
+                double[] x = Arrays.copyOfRange(returns[i], range[0], range[1]);
+                for (int j = 0; j < 130; j++) {
+                    double[] y = Arrays.copyOfRange(returns[j], range[0], range[1]);
+                    double[] expected = naivePair(x, y);
+                    String at = "(" + i + ", " + j + ") over [" + range[0] + ", " + range[1] + ")";
+                    assertClose(expected[0], cov[i * 130 + j], 1e-9, "covariance " + at);
+                    assertClose(expected[1], corr[i * 130 + j], 1e-9, "correlation " + at);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void correlationStaysWithinUnitIntervalForRaggedHistories() {
+        // Y copies the last 200 days of X's 400, after X has drifted in a different regime: centring X on its
+        // full-history mean would push the correlation well above 1
+        int days = 400;
+        double[][] prices = new double[2][days];
+        Random random = new Random(5);
+        double price = 100;
+        for (int t = 0; t < days; t++) {
+            price *= 1 + (t < 200 ? 0.01 : -0.002) + 0.01 * random.nextGaussian();
+            prices[0][t] = price;
+            prices[1][t] = t >= 200 ? price : Double.NaN;
+        }
+        CovarianceEngine copy = new CovarianceEngine(load(prices));
+        double[] corr = copy.computeCorrelation();
+        assertEquals(1.0, corr[1], 1e-12);
+        assertEquals(1.0, corr[2], 1e-12);
+
+        CovarianceEngine ragged = new CovarianceEngine(load(raggedPrices(70, 300, 3)));
+        ragged.initializeEwma(0.94, 60);
+        while (ragged.advanceEwma()) {
+            // Roll to the end of the date axis
+        }
+        for (double[] matrix : new double[][]{ragged.computeCorrelation(), ragged.getEwmaCorrelation()}) {
+            for (int i = 0; i < 70; i++) {
+                assertEquals(1.0, matrix[i * 70 + i], 1e-12);
+                for (int j = 0; j < 70; j++) {
+                    double value = matrix[i * 70 + j];
+                    assertTrue(value >= -1 && value <= 1, "correlation (" + i + ", " + j + ") = " + value);
+                    assertEquals(value, matrix[j * 70 + i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void advanceEwmaMatchesDirectRecursion() {
+        int tickers = 5, days = 120, seedDays = 30;
+        double lambda = 0.94;
+        double[][] prices = raggedPrices(tickers, days, 8);
+        double[][] returns = returns(prices);
+        CovarianceEngine engine = new CovarianceEngine(load(prices));
+        engine.initializeEwma(lambda, seedDays);
+
+        // Seed exactly as documented: pairwise covariance and each ticker's own mean over the seed window
+        double[] cov = engine.computeCovariance(0, seedDays);
+        double[] mean = new double[tickers];
+        for (int i = 0; i < tickers; i++) {
+            int count = 0;
+            for (int t = 0; t < seedDays; t++) {
+                if (Double.isNaN(returns[i][t])) continue;
+                mean[i] += returns[i][t];
+                count++;
+            }
+            mean[i] = count > 0 ? mean[i] / count : 0.0;
+        }
+
+        for (int day = seedDays; day < days; day++) {
+            assertEquals(day, engine.getNextEwmaDay());
+            assertTrue(engine.advanceEwma());
+            for (int i = 0; i < tickers; i++) {
+                for (int j = 0; j < tickers; j++) {
+                    double ri = returns[i][day], rj = returns[j][day];
+                    if (Double.isNaN(ri) || Double.isNaN(rj)) continue;
+                    double product = (ri - mean[i]) * (rj - mean[j]);
+                    double previous = cov[i * tickers + j];
+                    cov[i * tickers + j] = Double.isNaN(previous) ? product : lambda * previous + (1 - lambda) * product;
+                }
+            }
+            for (int i = 0; i < tickers; i++) {
+                if (!Double.isNaN(returns[i][day])) mean[i] = lambda * mean[i] + (1 - lambda) * returns[i][day];
+            }
+
+            double[] actual = engine.getEwmaCovariance();
+            for (int k = 0; k < cov.length; k++) {
+                assertClose(cov[k], actual[k], 1e-12, "EWMA covariance cell " + k + " on day " + day);
+            }
+        }
+        assertFalse(engine.advanceEwma());
+    }
+
+    @Test
+    public void rejectsInvalidRangesAndSeeds() {
+        CovarianceEngine engine = new CovarianceEngine(load(raggedPrices(3, 20, 1)));
+        assertThrows(IllegalArgumentException.class, () -> engine.computeCovariance(5, 3));
+        assertThrows(IllegalArgumentException.class, () -> engine.computeCovariance(0, 21));
+        assertThrows(IllegalArgumentException.class, () -> engine.initializeEwma(1.0, 10));
+        assertThrows(IllegalArgumentException.class, () -> engine.initializeEwma(0.9, 1));
+        assertThrows(IllegalStateException.class, engine::advanceEwma);
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerformanceMetricsTest {
+
+    // Portfolio values from a random walk with short volatility bursts between long quiet spells, so the
+    // rolling sums must cancel large squared returns exactly once a burst leaves the window
+    private static double[] portfolioValues(int days, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[days];
+        double value = 1_000_000;
+        for (int i = 0; i < days; i++) {
+            double volatility = i % 100 < 10 ? 0.3 : 1e-5;
+            value *= 1 + volatility * random.nextGaussian();
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private static List<Double> returns(double[] values, int upTo) {
+        List<Double> returns = new ArrayList<>();
+        for (int i = 1; i < upTo; i++) returns.add((values[i] - values[i - 1]) / values[i - 1]);
+        return returns;
+    }
+
+    private static double mean(List<Double> values) {
+        double sum = 0;
+        for (double v : values) sum += v;
+        return sum / values.size();
+    }
+
+    // Two-pass population variance
+    private static double variance(List<Double> values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double v : values) sum += (v - mean) * (v - mean);
+        return sum / values.size();
+    }
+
+    private static double downsideDeviation(List<Double> values) {
+        double sum = 0;
+        for (double v : values) sum += Math.min(v, 0.0) * Math.min(v, 0.0);
+        return Math.sqrt(sum / values.size());
+    }
+
+    @Test
+    public void runningMeanAndVarianceMatchTwoPass() {
+        double[] values = portfolioValues(1000, 1);
+        PerformanceMetrics metrics = new PerformanceMetrics(63);
+        for (double value : values) metrics.update(value, 0, 0);
+
+        List<Double> returns = returns(values, values.length);
+        assertEquals(returns.size(), metrics.getReturnCount());
+        assertEquals(mean(returns), metrics.getMeanReturn(), 1e-15);
+        assertEquals(variance(returns), metrics.getVariance(), 1e-15);
+        assertEquals(mean(returns) / Math.sqrt(variance(returns)), metrics.getSharpe(), 1e-10);
+        assertEquals(mean(returns) / downsideDeviation(returns), metrics.getSortino(), 1e-10);
+        assertEquals(values[values.length - 1] / values[0] - 1, metrics.getTotalReturn(), 1e-12);
+    }
+
+    @Test
+    public void rollingRatiosMatchTwoPassAcrossWraps() {
+        int window = 20;
+        double[] values = portfolioValues(20 * window + 7, 2);
+        PerformanceMetrics metrics = new PerformanceMetrics(window);
+        for (int day = 0; day < values.length; day++) {
+            metrics.update(values[day], 0, 0);
+            if (day == 0) continue;
+
+            List<Double> returns = returns(values, day + 1);
+            List<Double> trailing = returns.subList(Math.max(0, returns.size() - window), returns.size());
+            double sharpe = mean(trailing) / Math.sqrt(variance(trailing));
+            double sortino = mean(trailing) / downsideDeviation(trailing);
+            assertEquals(sharpe, metrics.getRollingSharpe(), 1e-9 * Math.max(1, Math.abs(sharpe)), "Sharpe on day " + day);
+            if (downsideDeviation(trailing) > 0) {
+                assertEquals(sortino, metrics.getRollingSortino(), 1e-9 * Math.max(1, Math.abs(sortino)), "Sortino on day " + day);
+            }
+        }
+    }
+
+    @Test
+    public void tracksPeakAndDrawdown() {
+        PerformanceMetrics metrics = new PerformanceMetrics(2);
+        double[] values = {100, 120, 90, 110, 130, 65, 80};
+        double[] expectedCurrent = {0, 0, 0.25, 1.0 / 12, 0, 0.5, 50.0 / 130};
+        double[] expectedMax = {0, 0, 0.25, 0.25, 0.25, 0.5, 0.5};
+        for (int i = 0; i < values.length; i++) {
+            metrics.update(values[i], 0, 0);
+            assertEquals(expectedCurrent[i], metrics.getCurrentDrawdown(), 1e-12, "current drawdown on day " + i);
+            assertEquals(expectedMax[i], metrics.getMaxDrawdown(), 1e-12, "max drawdown on day " + i);
+        }
+        assertEquals(130.0, metrics.getPeak());
+        assertFalse(metrics.isHopeless(0.5));
+        assertTrue(metrics.isHopeless(0.49));
+    }
+
+    @Test
+    public void averagesTurnoverExposureAndHitRate() {
+        PerformanceMetrics metrics = new PerformanceMetrics(5);
+        metrics.update(100, 50, 10);     // First day: no return yet
+        metrics.update(110, 55, 0);      // +10%
+        metrics.update(99, 0, 99);       // -10%
+        metrics.update(99, 99, 198);     // Flat
+        metrics.update(198, 198, 0);     // +100%
+
+        assertEquals(5, metrics.getDays());
+        assertEquals(307.0, metrics.getTotalTraded(), 1e-12);
+        assertEquals((0.1 + 0 + 1 + 2 + 0) / 5, metrics.getAverageTurnover(), 1e-12);
+        assertEquals((0.5 + 0.5 + 0 + 1 + 1) / 5, metrics.getAverageExposure(), 1e-12);
+        assertEquals(2.0 / 4, metrics.getHitRate(), 1e-12);
+    }
+
+    @Test
+    public void rejectsWindowsShorterThanTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new PerformanceMetrics(1));
+    }
+}
@@ -0,0 +1,167 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResampledSeriesTest {
+
+    // Weekday bars across year, month and week boundaries (months ending mid-week and on a Friday),
+    // with a few random holidays
+    private static List<StockData> dailyBars(LocalDate from, LocalDate to, long seed) {
+        Random random = new Random(seed);
+        List<StockData> bars = new ArrayList<>();
+        double close = 100;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+            if (random.nextInt(12) == 0) continue;
+            double open = close;
+            close *= 1 + 0.02 * random.nextGaussian();
+            double high = Math.max(open, close) * (1 + 0.01 * random.nextDouble());
+            double low = Math.min(open, close) * (1 - 0.01 * random.nextDouble());
+            bars.add(new StockData(date, price(open), price(high), price(low), price(close), price(close * 0.98),
+                    1000 + random.nextInt(9000), "TEST"));
+        }
+        return bars;
+    }
+
+    private static BigDecimal price(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static void assertSameBars(List<StockData> expected, List<StockData> actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        for (int i = 0; i < expected.size(); i++) {
+            StockData e = expected.get(i);
+            StockData a = actual.get(i);
+            String at = message + ", bar " + i;
+            assertEquals(e.getTimestamp(), a.getTimestamp(), at);
+            assertEquals(e.getOpen(), a.getOpen(), at);
+            assertEquals(e.getHigh(), a.getHigh(), at);
+            assertEquals(e.getLow(), a.getLow(), at);
+            assertEquals(e.getClose(), a.getClose(), at);
+            assertEquals(e.getAdjClose(), a.getAdjClose(), at);
+            assertEquals(e.getVolume(), a.getVolume(), at);
+            assertEquals(e.getTicker(), a.getTicker(), at);
+        }
+    }
+
+    @Test
+    public void appendingOneBarAtATimeMatchesFullResample() {
+        List<StockData> history = dailyBars(LocalDate.of(2019, 12, 16), LocalDate.of(2020, 7, 10), 3);
+        for (Timeframe timeframe : new Timeframe[]{Timeframe.WEEKLY, Timeframe.MONTHLY}) {
+            // Cache the resampled series after a few bars, then roll every later bar in through the manager
+            StockDataManager dataManager = new StockDataManager();
+            ResampledSeries direct = new ResampledSeries("TEST", timeframe);
+            for (int i = 0; i < history.size(); i++) {
+                dataManager.appendBar(history.get(i));
+                direct.append(history.get(i));
+                if (i == 2) dataManager.getResampledSeries("TEST", timeframe);
+
+                List<StockData> prefix = history.subList(0, i + 1);
+                List<StockData> expected = ResampledSeries.of("TEST", timeframe, prefix).getBars();
+                String at = timeframe + " after " + history.get(i).getDate();
+                assertSameBars(expected, dataManager.getResampledData("TEST", timeframe), at);
+                assertSameBars(expected, direct.getBars(), at);
+            }
+        }
+    }
+
+    @Test
+    public void bucketsFollowCalendarBoundaries() {
+        // Tue 2019-12-31 and Thu 2020-01-02 share a week but not a month; Fri 2020-01-31 and Mon 2020-02-03 share neither
+        LocalDate[] dates = {LocalDate.of(2019, 12, 30), LocalDate.of(2019, 12, 31), LocalDate.of(2020, 1, 2),
+                LocalDate.of(2020, 1, 31), LocalDate.of(2020, 2, 3)};
+        List<StockData> bars = new ArrayList<>();
+        for (int i = 0; i < dates.length; i++) {
+            BigDecimal price = BigDecimal.valueOf(10 + i);
+            bars.add(new StockData(dates[i], price, price.add(BigDecimal.ONE), price.subtract(BigDecimal.ONE), price, price, 100, "TEST"));
+        }
+
+        List<StockData> weekly = ResampledSeries.of("TEST", Timeframe.WEEKLY, bars).getBars();
+        assertEquals(3, weekly.size());
+        assertEquals(LocalDate.of(2020, 1, 2), weekly.get(0).getDate());
+        assertEquals(new BigDecimal("10"), weekly.get(0).getOpen());
+        assertEquals(new BigDecimal("13"), weekly.get(0).getHigh());
+        assertEquals(new BigDecimal("9"), weekly.get(0).getLow());
+        assertEquals(new BigDecimal("12"), weekly.get(0).getClose());
+        assertEquals(300, weekly.get(0).getVolume());
+
+        List<StockData> monthly = ResampledSeries.of("TEST", Timeframe.MONTHLY, bars).getBars();
+        assertEquals(3, monthly.size());
+        assertEquals(LocalDate.of(2019, 12, 31), monthly.get(0).getDate());
+        assertEquals(LocalDate.of(2020, 1, 31), monthly.get(1).getDate());
+        assertEquals(new BigDecimal("12"), monthly.get(1).getOpen());
+        assertEquals(200, monthly.get(1).getVolume());
+    }
+
+    @Test
+    public void completedBeforeNeverReturnsTheOpenBucket() {
+        List<StockData> history = dailyBars(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 6, 30), 5);
+        for (Timeframe timeframe : new Timeframe[]{Timeframe.WEEKLY, Timeframe.MONTHLY}) {
+            ResampledSeries series = new ResampledSeries("TEST", timeframe);
+            for (StockData bar : history) {
+                series.append(bar);
+
+                // Every calendar day from this bar up to the end of the next bucket, including weekends and holidays
+                for (LocalDate date = bar.getDate(); date.isBefore(bar.getDate().plusDays(40)); date = date.plusDays(1)) {
+                    LocalDate openBucket = timeframe.bucketStart(date);
+                    List<StockData> completed = series.completedBefore(date);
+                    int expectedCount = 0;
+                    for (StockData resampled : series.getBars()) {
+                        if (timeframe.bucketStart(resampled.getDate()).isBefore(openBucket)) expectedCount++;
+                    }
+                    assertEquals(expectedCount, completed.size(), timeframe + " on " + date + " after " + bar.getDate());
+                    for (StockData resampled : completed) {
+                        assertTrue(timeframe.bucketStart(resampled.getDate()).isBefore(openBucket),
+                                timeframe + " bar " + resampled.getDate() + " is not complete on " + date);
+                    }
+                }
+
+                // The bucket the latest bar belongs to is still open on that bar's date
+                List<StockData> completed = series.completedBefore(bar.getDate());
+                assertEquals(series.size() - 1, completed.size());
+            }
+        }
+    }
+
+    @Test
+    public void intradayBarsKeepTheirTimestamps() {
+        List<StockData> minutes = new ArrayList<>();
+        LocalDateTime open = LocalDateTime.of(2024, 3, 1, 9, 30);       // Friday, then Monday
+        for (LocalDateTime day : new LocalDateTime[]{open, open.plusDays(3)}) {
+            for (int minute = 0; minute < 390; minute += 13) {
+                BigDecimal price = BigDecimal.valueOf(100 + minute % 7);
+                minutes.add(new StockData(day.plusMinutes(minute), price, price, price, price, price, 1, "MIN"));
+            }
+        }
+
+        List<StockData> weekly = ResampledSeries.of("MIN", Timeframe.WEEKLY, minutes).getBars();
+        assertEquals(2, weekly.size());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 15, 47), weekly.get(0).getTimestamp());
+        assertEquals(LocalDateTime.of(2024, 3, 4, 15, 47), weekly.get(1).getTimestamp());
+
+        ResampledSeries series = new ResampledSeries("MIN", Timeframe.WEEKLY);
+        series.append(minutes.get(0));
+        assertEquals(open, series.getBars().get(0).getTimestamp());
+        StockData earlier = new StockData(open.minusMinutes(1), BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE,
+                BigDecimal.ONE, BigDecimal.ONE, 1, "MIN");
+        assertThrows(IllegalArgumentException.class, () -> series.append(earlier));
+    }
+
+    @Test
+    public void rejectsBarsOutOfOrder() {
+        List<StockData> bars = dailyBars(LocalDate.of(2020, 3, 2), LocalDate.of(2020, 3, 13), 1);
+        ResampledSeries series = ResampledSeries.of("TEST", Timeframe.WEEKLY, bars);
+        assertThrows(IllegalArgumentException.class, () -> series.append(bars.get(0)));
+    }
+}
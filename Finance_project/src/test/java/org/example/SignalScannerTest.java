@@ -0,0 +1,156 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignalScannerTest {
+    private static final int PERIOD = 14;
+    private static final LocalDate START = LocalDate.of(2021, 1, 4);
+
+    // Weekday bars for each ticker, starting on different days and skipping some, so tickers warm up
+    // at different dates and some have no bar on a scan date
+    private static StockDataManager universe(int tickers, int days, long seed) {
+        Random random = new Random(seed);
+        List<StockData> bars = new ArrayList<>();
+        for (int i = 0; i < tickers; i++) {
+            int first = random.nextInt(30);
+            double close = 20 + random.nextInt(200);
+            for (int t = first; t < days; t++) {
+                close *= 1 + 0.02 * random.nextGaussian();
+                if (random.nextInt(15) == 0) continue;
+                double high = close * (1 + 0.02 * random.nextDouble());
+                double low = close * (1 - 0.02 * random.nextDouble());
+                bars.add(new StockData(tradingDay(t), price(close), price(high), price(low), price(close), price(close),
+                        1000 + random.nextInt(1000), "S" + i));
+            }
+        }
+        bars.sort(Comparator.comparing(StockData::getDate));
+        StockDataManager dataManager = new StockDataManager();
+        for (StockData bar : bars) dataManager.appendBar(bar);
+        return dataManager;
+    }
+
+    private static LocalDate tradingDay(int t) {
+        return START.plusWeeks(t / 5).plusDays(t % 5);
+    }
+
+    private static BigDecimal price(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    // The ticker's bars up to and including `date`
+    private static List<StockData> history(StockDataManager dataManager, String ticker, LocalDate date) {
+        List<StockData> history = new ArrayList<>();
+        for (StockData bar : dataManager.getHistoricalData(ticker)) {
+            if (!bar.getDate().isAfter(date)) history.add(bar);
+        }
+        return history;
+    }
+
+    private static List<BigDecimal> column(List<StockData> bars, Function<StockData, BigDecimal> field) {
+        List<BigDecimal> values = new ArrayList<>();
+        for (StockData bar : bars) values.add(field.apply(bar));
+        return values;
+    }
+
+    // {adx, rsi, zScore} from the Indicators functions on the trailing window, NaN while warming up
+    private static double[] expected(List<StockData> history) {
+        double[] values = {Double.NaN, Double.NaN, Double.NaN};
+        if (history.size() >= PERIOD) {
+            List<StockData> window = history.subList(history.size() - PERIOD, history.size());
+            values[0] = Indicators.calculateADX(column(window, StockData::getHigh), column(window, StockData::getLow),
+                    column(window, StockData::getClose), PERIOD).doubleValue();
+            values[1] = Indicators.calculateRSI(column(window, StockData::getClose), PERIOD).doubleValue();
+        }
+        if (history.size() > PERIOD) {
+            List<BigDecimal> returns = new ArrayList<>();
+            for (int k = history.size() - PERIOD; k < history.size(); k++) {
+                double previous = history.get(k - 1).getClose().doubleValue();
+                returns.add(BigDecimal.valueOf((history.get(k).getClose().doubleValue() - previous) / previous));
+            }
+            values[2] = Indicators.calculateZScore(returns, PERIOD).doubleValue();
+        }
+        return values;
+    }
+
+    private static void assertClose(double expected, double actual, String message) {
+        if (Double.isNaN(expected)) {
+            assertTrue(Double.isNaN(actual), message + ": expected NaN but was " + actual);
+        } else {
+            assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)), message);
+        }
+    }
+
+    @Test
+    public void snapshotsMatchIndicatorsOnTrailingWindows() {
+        StockDataManager dataManager = universe(25, 200, 4);
+        SignalScanner scanner = new SignalScanner(dataManager, PERIOD, EnumSet.allOf(SignalScanner.Signal.class));
+
+        // Forward, then backwards (restarting every ticker's stream), then forward again
+        int[] scanDays = {5, 13, 14, 20, 21, 60, 61, 199, 35, 10, 36, 150};
+        for (int day : scanDays) {
+            LocalDate date = tradingDay(day);
+            Map<String, SignalScanner.Snapshot> snapshots = new HashMap<>();
+            for (SignalScanner.Ranked ranked : scanner.scan(date, snapshot -> 1.0, Integer.MAX_VALUE)) {
+                assertEquals(date, ranked.snapshot.date);
+                snapshots.put(ranked.snapshot.ticker, ranked.snapshot);
+            }
+
+            for (String ticker : dataManager.getStocks()) {
+                List<StockData> history = history(dataManager, ticker, date);
+                boolean hasBar = !history.isEmpty() && history.get(history.size() - 1).getDate().equals(date);
+                SignalScanner.Snapshot snapshot = snapshots.get(ticker);
+                assertEquals(hasBar, snapshot != null, ticker + " on " + date);
+                if (!hasBar) continue;
+
+                double[] expected = expected(history);
+                String at = ticker + " on " + date;
+                assertClose(expected[0], snapshot.adx, "ADX " + at);
+                assertClose(expected[1], snapshot.rsi, "RSI " + at);
+                assertClose(expected[2], snapshot.zScore, "Z-Score " + at);
+            }
+        }
+    }
+
+    @Test
+    public void topKMatchesFullSort() {
+        StockDataManager dataManager = universe(60, 120, 9);
+        SignalScanner scanner = new SignalScanner(dataManager, PERIOD, EnumSet.of(SignalScanner.Signal.ADX));
+
+        for (int day : new int[]{40, 80, 119, 50}) {
+            LocalDate date = tradingDay(day);
+            List<Map.Entry<String, Double>> all = new ArrayList<>();
+            for (String ticker : dataManager.getStocks()) {
+                List<StockData> history = history(dataManager, ticker, date);
+                if (history.isEmpty() || !history.get(history.size() - 1).getDate().equals(date)) continue;
+                double adx = expected(history)[0];
+                if (!Double.isNaN(adx)) all.add(new AbstractMap.SimpleEntry<>(ticker, adx));
+            }
+            all.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+
+            for (int k : new int[]{1, 7, all.size(), all.size() + 5}) {
+                List<SignalScanner.Ranked> top = scanner.scan(date, snapshot -> snapshot.adx, k);
+                assertEquals(Math.min(k, all.size()), top.size(), "k = " + k + " on " + date);
+
+                Set<String> expectedTickers = new HashSet<>();
+                for (Map.Entry<String, Double> entry : all.subList(0, Math.min(k, all.size()))) {
+                    expectedTickers.add(entry.getKey());
+                }
+                Set<String> actualTickers = new HashSet<>();
+                for (int r = 0; r < top.size(); r++) {
+                    actualTickers.add(top.get(r).snapshot.ticker);
+                    if (r > 0) assertTrue(top.get(r - 1).score >= top.get(r).score, "descending order");
+                }
+                assertEquals(expectedTickers, actualTickers, "k = " + k + " on " + date);
+            }
+        }
+        assertTrue(scanner.scan(tradingDay(80), snapshot -> snapshot.adx, 0).isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockDataManagerTest {
+
+    // Consecutive daily bars with exact decimal prices; enough to span several compressed blocks
+    private static StockDataManager manager(String[] tickers, int days) {
+        StockDataManager dataManager = new StockDataManager();
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        for (int t = 0; t < days; t++) {
+            for (int i = 0; i < tickers.length; i++) {
+                BigDecimal price = BigDecimal.valueOf(1000 + 7 * i + (t * 37 % 101), 2);
+                dataManager.appendBar(new StockData(start.plusDays(t), price, price, price, price, price, t, tickers[i]));
+            }
+        }
+        return dataManager;
+    }
+
+    private static File tempFile() throws IOException {
+        File file = Files.createTempDirectory("bars").resolve("store" + StockDataManager.COMPRESSED_EXTENSION).toFile();
+        file.deleteOnExit();
+        file.getParentFile().deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void rejectedSaveLeavesNoFile() throws IOException {
+        StockDataManager dataManager = manager(new String[]{"A", "B"}, 10);
+        BigDecimal notADouble = new BigDecimal("0.1000000000000000000001");
+        dataManager.appendBar(new StockData(LocalDate.of(2020, 2, 1), notADouble, notADouble, notADouble, notADouble,
+                notADouble, 1, "B"));
+
+        File file = tempFile();
+        assertEquals(0, dataManager.saveCompressed(file.getPath()));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void compressedHistoriesGiveEachCallerItsOwnView() throws Exception {
+        String[] tickers = {"A", "B", "C"};
+        StockDataManager original = manager(tickers, 2500);
+        File file = tempFile();
+        long written = original.saveCompressed(file.getPath());
+        assertTrue(written > 0);
+        assertEquals(file.length(), written);
+
+        StockDataManager loaded = new StockDataManager();
+        loaded.loadHistoricalData(file.getPath());
+        List<StockData> first = loaded.getHistoricalData("A");
+        List<StockData> second = loaded.getHistoricalData("A");
+        assertNotSame(first, second);
+
+        // Readers on different threads walk the same stock across block boundaries at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> matches = new ArrayList<>();
+            for (int r = 0; r < 16; r++) {
+                String ticker = tickers[r % tickers.length];
+                int stride = 1 + r;
+                matches.add(executor.submit(() -> {
+                    List<StockData> expected = original.getHistoricalData(ticker);
+                    List<StockData> actual = loaded.getHistoricalData(ticker);
+                    for (int pass = 0; pass < stride; pass++) {
+                        for (int k = pass; k < expected.size(); k += stride) {
+                            StockData e = expected.get(k);
+                            StockData a = actual.get(k);
+                            if (!e.getTimestamp().equals(a.getTimestamp()) || !e.getClose().equals(a.getClose())
+                                    || e.getVolume() != a.getVolume()) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> match : matches) {
+                assertTrue(match.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void appendingToACompressedStockDecompressesIt() throws IOException {
+        File file = tempFile();
+        manager(new String[]{"A"}, 1500).saveCompressed(file.getPath());
+
+        StockDataManager loaded = new StockDataManager();
+        loaded.loadHistoricalData(file.getPath());
+        List<StockData> before = loaded.getHistoricalData("A");
+        BigDecimal price = new BigDecimal("12.34");
+        LocalDate next = before.get(before.size() - 1).getDate().plusDays(1);
+        loaded.appendBar(new StockData(next, price, price, price, price, price, 1, "A"));
+
+        List<StockData> after = loaded.getHistoricalData("A");
+        assertSame(after, loaded.getHistoricalData("A"));
+        assertEquals(1501, after.size());
+        assertEquals(before.get(1499).getClose(), after.get(1499).getClose());
+        assertEquals(price, after.get(1500).getClose());
+    }
+}